@@ -4,12 +4,34 @@ package com.codingwithmitch.foodrecipes;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
 
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
+/**
+ * The app's thread pools:
+ * - diskIO(): ONE thread for every db write, so writes never contend for SQLite's write lock and
+ *   never run at the same time
+ * - diskRead(): reads that don't go through Room's LiveData (e.g. the cache evictor's scans), one
+ *   thread per core so a long write doesn't hold them up
+ * - networkIO(): every Retrofit call runs here as a task of its own, with the call's Priority, and
+ *   its response is decoded here
+ * - mainThread()
+ *
+ * The pools are PriorityExecutors: queued work runs by Priority, so a tap doesn't wait behind
+ * background refreshes. They also record their queue depth, wait and run times.
+ *
+ * Tests can install forTesting() with setInstance() to run everything right away on the calling
+ * thread.
+ */
 public class AppExecutors {
 
+    // Threads for network calls, the same as OkHttp's default max requests per host
+    public static final int NETWORK_THREADS = 5;
+
+    // A queued task counts as one priority higher for every TASK_AGING_TIME it has been waiting
+    private static final long TASK_AGING_TIME = 1000; // ms
+
     private static AppExecutors instance;
 
     public static AppExecutors getInstance(){
@@ -19,13 +41,67 @@ public class AppExecutors {
         return instance;
     }
 
-    private final Executor mDiskIO = Executors.newSingleThreadExecutor();
-    private final Executor mMainThreadExecutor = new MainThreadExecutor();
+    @VisibleForTesting
+    public static void setInstance(@NonNull AppExecutors appExecutors){
+        instance = appExecutors;
+    }
+
+    /**
+     * @return executors that run every task immediately on the calling thread, in submission order
+     */
+    @VisibleForTesting
+    public static AppExecutors forTesting() {
+        return new AppExecutors(new PriorityExecutor("disk-write", 0, 0),
+                new PriorityExecutor("disk-read", 0, 0),
+                new PriorityExecutor("network", 0, 0),
+                new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable runnable) {
+                        runnable.run();
+                    }
+                });
+    }
+
+    private final PriorityExecutor mDiskIO;
+    private final PriorityExecutor mDiskRead;
+    private final PriorityExecutor mNetworkIO;
+    private final Executor mMainThreadExecutor;
+
+    private AppExecutors() {
+        this(new PriorityExecutor("disk-write", 1, TASK_AGING_TIME),
+                new PriorityExecutor("disk-read", Runtime.getRuntime().availableProcessors(),
+                        TASK_AGING_TIME),
+                new PriorityExecutor("network", NETWORK_THREADS, TASK_AGING_TIME),
+                new MainThreadExecutor());
+    }
+
+    @VisibleForTesting
+    public AppExecutors(PriorityExecutor diskIO, PriorityExecutor diskRead,
+            PriorityExecutor networkIO, Executor mainThread) {
+        mDiskIO = diskIO;
+        mDiskRead = diskRead;
+        mNetworkIO = networkIO;
+        mMainThreadExecutor = mainThread;
+    }
 
-    public Executor diskIO() {
+    /**
+     * The single writer. Everything that writes to the db goes here.
+     */
+    public PriorityExecutor diskIO() {
         return mDiskIO;
     }
 
+    /**
+     * For reads only, tasks here run in parallel.
+     */
+    public PriorityExecutor diskRead() {
+        return mDiskRead;
+    }
+
+    public PriorityExecutor networkIO() {
+        return mNetworkIO;
+    }
+
     public Executor mainThread() {
         return mMainThreadExecutor;
     }
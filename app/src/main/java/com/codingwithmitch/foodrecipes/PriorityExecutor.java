@@ -0,0 +1,350 @@
+package com.codingwithmitch.foodrecipes;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.metrics.AppMetrics;
+import com.codingwithmitch.foodrecipes.metrics.Metrics;
+import com.codingwithmitch.foodrecipes.util.Priority;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed number of threads that run queued tasks by Priority instead of FIFO.
+ *
+ * Aging: for every agingMillis a task has been waiting it counts as one priority higher, so a steady
+ * stream of USER_BLOCKING work can delay BACKGROUND work but never starve it. Tasks of the same
+ * (aged) priority run in the order they were submitted.
+ *
+ * execute(Runnable, Priority) returns a Task whose priority can still be changed (or which can be
+ * cancelled) while it is queued.
+ *
+ * Plain execute(Runnable) runs at USER_VISIBLE.
+ *
+ * Every task records, tagged with "pool=<name>" and its priority:
+ * - executor.queue_depth: tasks already waiting when it was submitted
+ * - executor.wait_ns: time from being submitted until a thread picked it up
+ * - executor.run_ns: time spent running it
+ *
+ * A PriorityExecutor with 0 threads runs every task right away on the calling thread (for tests).
+ */
+public class PriorityExecutor extends AbstractExecutorService {
+
+    public static final String METRIC_QUEUE_DEPTH = "executor.queue_depth";
+    public static final String METRIC_WAIT = "executor.wait_ns";
+    public static final String METRIC_RUN = "executor.run_ns";
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final String mName;
+    private final int mThreads;
+    private final long mAgingNanos;
+
+    private final Object mLock = new Object();
+
+    // one queue per priority, each in submission order
+    private final List<LinkedList<Task>> mQueues = new ArrayList<>();
+    private int mQueued;
+    private long mNextSequence;
+
+    private int mWorkers;
+    private int mIdleWorkers;
+    private boolean mShutdown;
+
+    /**
+     * @param name used for the thread names and the metrics tag
+     * @param threads number of threads, started on demand and kept alive. 0 runs tasks on the
+     *                calling thread.
+     * @param agingMillis how long a task waits before it counts as one priority higher
+     */
+    public PriorityExecutor(String name, int threads, long agingMillis) {
+        mName = name;
+        mThreads = threads;
+        mAgingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+        for(int i = 0; i < PRIORITIES.length; i++) {
+            mQueues.add(new LinkedList<Task>());
+        }
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        execute(command, Priority.USER_VISIBLE);
+    }
+
+    /**
+     * @return the queued task, e.g. to change its priority later
+     */
+    public Task execute(@NonNull Runnable command, Priority priority) {
+        Task task = new Task(command, priority);
+        task.mExecutor = this;
+        if(mThreads == 0) {
+            task.mSubmitted = System.nanoTime();
+            task.mState = Task.RUNNING;
+            run(task);
+            return task;
+        }
+        int queued;
+        synchronized (mLock) {
+            if(mShutdown) {
+                throw new RejectedExecutionException(mName + " is shut down");
+            }
+            queued = mQueued;
+            task.mSubmitted = System.nanoTime();
+            task.mSequence = mNextSequence++;
+            mQueues.get(priority.ordinal()).addLast(task);
+            mQueued++;
+            if(mIdleWorkers > 0) {
+                mLock.notify();
+            } else if(mWorkers < mThreads) {
+                startWorker();
+            }
+        }
+        AppMetrics.get().record(METRIC_QUEUE_DEPTH, queued, "pool=" + mName,
+                "priority=" + priority.name());
+        return task;
+    }
+
+    /**
+     * @return number of tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        synchronized (mLock) {
+            return mQueued;
+        }
+    }
+
+    // with mLock held
+    private void startWorker() {
+        mWorkers++;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                work();
+            }
+        }, mName + "-" + mWorkers);
+        thread.start();
+    }
+
+    private void work() {
+        while(true) {
+            Task task;
+            synchronized (mLock) {
+                while((task = next()) == null) {
+                    if(mShutdown) {
+                        mWorkers--;
+                        mLock.notifyAll();
+                        return;
+                    }
+                    mIdleWorkers++;
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException ignored) {
+                        // shutdownNow(), checked above
+                    } finally {
+                        mIdleWorkers--;
+                    }
+                }
+            }
+            boolean completed = false;
+            try {
+                run(task);
+                completed = true;
+            } finally {
+                if(!completed) {
+                    // the task threw and takes this thread down with it, keep the pool at size
+                    synchronized (mLock) {
+                        mWorkers--;
+                        if(mQueued > 0 && !mShutdown) {
+                            startWorker();
+                        }
+                        mLock.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    private void run(Task task) {
+        Metrics metrics = AppMetrics.get();
+        String poolTag = "pool=" + mName;
+        String priorityTag = "priority=" + task.mPriority.name();
+        long started = System.nanoTime();
+        metrics.record(METRIC_WAIT, started - task.mSubmitted, poolTag, priorityTag);
+        try {
+            task.mCommand.run();
+        } finally {
+            task.mState = Task.DONE;
+            metrics.record(METRIC_RUN, System.nanoTime() - started, poolTag, priorityTag);
+        }
+    }
+
+    /**
+     * Takes the task to run next: the highest aged priority, the oldest on a tie. Only the head of
+     * every queue has to be looked at, it's the one that has waited the longest.
+     * With mLock held.
+     */
+    @Nullable
+    private Task next() {
+        long now = System.nanoTime();
+        Task best = null;
+        long bestRank = Long.MAX_VALUE;
+        for(LinkedList<Task> queue: mQueues) {
+            Task head = queue.peekFirst();
+            if(head == null) {
+                continue;
+            }
+            long rank = head.mPriority.ordinal();
+            if(mAgingNanos > 0) {
+                rank = Math.max(0, rank - (now - head.mSubmitted) / mAgingNanos);
+            }
+            if(rank < bestRank || (rank == bestRank && head.mSequence < best.mSequence)) {
+                best = head;
+                bestRank = rank;
+            }
+        }
+        if(best != null) {
+            mQueues.get(best.mPriority.ordinal()).removeFirst();
+            mQueued--;
+            best.mState = Task.RUNNING;
+        }
+        return best;
+    }
+
+    private void setPriority(Task task, Priority priority) {
+        synchronized (mLock) {
+            if(task.mState != Task.QUEUED || task.mPriority == priority) {
+                task.mPriority = priority;
+                return;
+            }
+            mQueues.get(task.mPriority.ordinal()).remove(task);
+            task.mPriority = priority;
+            // keep the queue in submission order, the task keeps the time it already waited
+            ListIterator<Task> iterator = mQueues.get(priority.ordinal()).listIterator();
+            while(iterator.hasNext()) {
+                if(iterator.next().mSequence > task.mSequence) {
+                    iterator.previous();
+                    break;
+                }
+            }
+            iterator.add(task);
+        }
+    }
+
+    private boolean cancel(Task task) {
+        synchronized (mLock) {
+            if(task.mState != Task.QUEUED) {
+                return false;
+            }
+            mQueues.get(task.mPriority.ordinal()).remove(task);
+            mQueued--;
+            task.mState = Task.CANCELLED;
+            return true;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (mLock) {
+            mShutdown = true;
+            mLock.notifyAll();
+        }
+    }
+
+    @NonNull
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        synchronized (mLock) {
+            mShutdown = true;
+            for(LinkedList<Task> queue: mQueues) {
+                for(Task task: queue) {
+                    task.mState = Task.CANCELLED;
+                    pending.add(task.mCommand);
+                }
+                queue.clear();
+            }
+            mQueued = 0;
+            mLock.notifyAll();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized (mLock) {
+            return mShutdown;
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        synchronized (mLock) {
+            return mShutdown && mWorkers == 0 && mQueued == 0;
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NonNull TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (mLock) {
+            while(!(mShutdown && mWorkers == 0 && mQueued == 0)) {
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(mLock, remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A task submitted with a priority.
+     */
+    public static class Task {
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+        private static final int CANCELLED = 3;
+
+        private final Runnable mCommand;
+        private volatile Priority mPriority;
+        private PriorityExecutor mExecutor;
+        private long mSubmitted;
+        private long mSequence;
+        private volatile int mState = QUEUED;
+
+        private Task(Runnable command, Priority priority) {
+            mCommand = command;
+            mPriority = priority;
+        }
+
+        public Priority getPriority() {
+            return mPriority;
+        }
+
+        /**
+         * Moves the task to another priority if it is still queued, otherwise does nothing.
+         */
+        public void setPriority(Priority priority) {
+            if(mExecutor != null) {
+                mExecutor.setPriority(this, priority);
+            }
+        }
+
+        /**
+         * Removes the task from the queue.
+         * @return false if it already started (or was cancelled before)
+         */
+        public boolean cancel() {
+            return mExecutor != null && mExecutor.cancel(this);
+        }
+    }
+}
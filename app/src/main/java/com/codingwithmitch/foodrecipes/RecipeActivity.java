@@ -23,6 +23,8 @@ public class RecipeActivity extends BaseActivity {
 
     private static final String TAG = "RecipeActivity";
 
+    public static final String EXTRA_RECIPE_ID = "recipe_id";
+
     // UI components
     private AppCompatImageView mRecipeImage;
     private TextView mRecipeTitle, mRecipeRank;
@@ -48,10 +50,10 @@ public class RecipeActivity extends BaseActivity {
     }
 
     private void getIncomingIntent(){
-        if(getIntent().hasExtra("recipe")){
-            Recipe recipe = getIntent().getParcelableExtra("recipe");
-            Log.d(TAG, "getIncomingIntent: " + recipe.getTitle());
-            subscribeObservers(recipe.getRecipe_id());
+        if(getIntent().hasExtra(EXTRA_RECIPE_ID)){
+            String recipeId = getIntent().getStringExtra(EXTRA_RECIPE_ID);
+            Log.d(TAG, "getIncomingIntent: " + recipeId);
+            subscribeObservers(recipeId);
 
         }
     }
@@ -6,11 +6,14 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.SearchView;
 import android.support.v7.widget.Toolbar;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.widget.Toast;
 
 
@@ -20,8 +23,9 @@ import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.codingwithmitch.foodrecipes.adapters.OnRecipeListener;
+import com.codingwithmitch.foodrecipes.metrics.AppMetrics;
 import com.codingwithmitch.foodrecipes.adapters.RecipeRecyclerAdapter;
-import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
 import com.codingwithmitch.foodrecipes.util.Resource;
 import com.codingwithmitch.foodrecipes.util.Testing;
 import com.codingwithmitch.foodrecipes.util.VerticalSpacingItemDecorator;
@@ -54,6 +58,19 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
         setSupportActionBar((Toolbar)findViewById(R.id.toolbar));
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        mRecipeListViewModel.setInForeground(true);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // e.g. a recipe was opened, a page still loading here shouldn't hold it up
+        mRecipeListViewModel.setInForeground(false);
+    }
+
     @Override
     public void onBackPressed() {
         if(mRecipeListViewModel.getViewState().getValue() == RecipeListViewModel.ViewState.CATEGORIES) {
@@ -64,10 +81,34 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
         }
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        if(BuildConfig.DEBUG) {
+            getMenuInflater().inflate(R.menu.debug_menu, menu);
+        }
+        return super.onCreateOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if(item.getItemId() == R.id.action_metrics) {
+            // p50/p95/p99 of everything recorded so far (see AppMetrics)
+            String metrics = AppMetrics.dump();
+            Log.i(TAG, "onOptionsItemSelected: metrics:\n" + metrics);
+            new AlertDialog.Builder(this)
+                    .setTitle("Metrics")
+                    .setMessage(metrics)
+                    .setPositiveButton("OK", null)
+                    .show();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
     private void subscribeObservers() {
-        mRecipeListViewModel.getRecipes().observe(this, new Observer<Resource<List<Recipe>>>() {
+        mRecipeListViewModel.getRecipes().observe(this, new Observer<Resource<List<RecipeSummary>>>() {
             @Override
-            public void onChanged(@Nullable Resource<List<Recipe>> listResource) {
+            public void onChanged(@Nullable Resource<List<RecipeSummary>> listResource) {
                 if(listResource != null) {
                     Log.i(TAG, "onChanged status "+listResource.status);
 
@@ -79,6 +120,13 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
                                 Log.i(TAG, "onChanged: status: SUCCES, #recipes "+listResource.data.size());
                                 mAdapter.hideLoading();
                                 mAdapter.setRecipes(listResource.data);
+                                // after the new items are laid out
+                                mRecyclerView.post(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        updateVisibleRecipes();
+                                    }
+                                });
                                 break;
                             }
                             case LOADING: {
@@ -154,6 +202,18 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
                 viewPreloadSizeProvider, 30);
         mRecyclerView.addOnScrollListener(preloader);
         mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                super.onScrolled(recyclerView, dx, dy);
+                if(dy > 0) {
+                    // loads the next page before the user gets to the end
+                    LinearLayoutManager layoutManager =
+                            (LinearLayoutManager) recyclerView.getLayoutManager();
+                    mRecipeListViewModel.onListScrolled(
+                            layoutManager.findLastVisibleItemPosition(), layoutManager.getItemCount());
+                }
+            }
+
             @Override
             public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
                 super.onScrollStateChanged(recyclerView, newState);
@@ -161,11 +221,25 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
                 mRecipeListViewModel.getViewState().getValue() == RecipeListViewModel.ViewState.RECIPES) {
                     mRecipeListViewModel.searchNextPage();
                 }
+                if(newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    // not while flinging, most of those items are gone a moment later
+                    updateVisibleRecipes();
+                }
             }
         });
         mRecyclerView.setAdapter(mAdapter);
     }
 
+    /**
+     * Tells the ViewModel which recipes are on screen so their details are prefetched.
+     */
+    private void updateVisibleRecipes() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        mRecipeListViewModel.setVisibleRecipes(mAdapter.getRecipeIds(
+                layoutManager.findFirstVisibleItemPosition(),
+                layoutManager.findLastVisibleItemPosition()));
+    }
+
     private void initSearchView(){
         mSearchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
@@ -185,7 +259,9 @@ public class RecipeListActivity extends BaseActivity implements OnRecipeListener
     @Override
     public void onRecipeClick(int position) {
         Intent intent = new Intent(this, RecipeActivity.class);
-        intent.putExtra("recipe", mAdapter.getSelectedRecipe(position));
+        // only the id is passed, RecipeActivity loads the full recipe itself
+        intent.putExtra(RecipeActivity.EXTRA_RECIPE_ID,
+                mAdapter.getSelectedRecipe(position).getRecipe_id());
         startActivity(intent);
     }
 
@@ -10,7 +10,7 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.request.RequestOptions;
 import com.codingwithmitch.foodrecipes.R;
-import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
 
 import de.hdodenhof.circleimageview.CircleImageView;
 
@@ -38,7 +38,7 @@ public class CategoryViewHolder extends RecyclerView.ViewHolder implements View.
         listener.onCategoryClick(categoryTitle.getText().toString());
     }
 
-    public void onBind(Recipe recipe) {
+    public void onBind(RecipeSummary recipe) {
 
         Uri path = Uri.parse("android.resource://com.codingwithmitch.foodrecipes/drawable/" + recipe.getImage_url());
         mRequestManager
@@ -16,7 +16,7 @@ import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.codingwithmitch.foodrecipes.R;
-import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
 import com.codingwithmitch.foodrecipes.util.Constants;
 
 import java.util.ArrayList;
@@ -31,7 +31,7 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
     private static final int CATEGORY_TYPE = 3;
     private static final int EXHAUSTED_TYPE = 4;
 
-    private List<Recipe> mRecipes;
+    private List<RecipeSummary> mRecipes;
     private OnRecipeListener mOnRecipeListener;
     private RequestManager mRequestManager;
     private ViewPreloadSizeProvider<String> mPreloadSizeProvider;
@@ -111,7 +111,7 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
     // display loading during search request
     public void displayOnlyLoading() {
         clearRecipesList();
-        Recipe recipe = new Recipe();
+        RecipeSummary recipe = new RecipeSummary();
         recipe.setTitle("LOADING...");
         mRecipes.add(recipe);
         notifyDataSetChanged();
@@ -128,7 +128,7 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
 
     public void setQueryExhausted(){
         hideLoading();
-        Recipe exhaustedRecipe = new Recipe();
+        RecipeSummary exhaustedRecipe = new RecipeSummary();
         exhaustedRecipe.setTitle("EXHAUSTED...");
         mRecipes.add(exhaustedRecipe);
         notifyDataSetChanged();
@@ -151,7 +151,7 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
             mRecipes = new ArrayList<>();
         }
         if(!isLoading()){
-            Recipe recipe = new Recipe();
+            RecipeSummary recipe = new RecipeSummary();
             recipe.setTitle("LOADING...");
             mRecipes.add(recipe);
             notifyDataSetChanged();
@@ -170,9 +170,9 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
     }
 
     public void displaySearchCategories(){
-        List<Recipe> categories = new ArrayList<>();
+        List<RecipeSummary> categories = new ArrayList<>();
         for(int i = 0; i< Constants.DEFAULT_SEARCH_CATEGORIES.length; i++){
-            Recipe recipe = new Recipe();
+            RecipeSummary recipe = new RecipeSummary();
             recipe.setTitle(Constants.DEFAULT_SEARCH_CATEGORIES[i]);
             recipe.setImage_url(Constants.DEFAULT_SEARCH_CATEGORY_IMAGES[i]);
             recipe.setSocial_rank(-1);
@@ -190,12 +190,29 @@ public class RecipeRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.Vie
         return 0;
     }
 
-    public void setRecipes(List<Recipe> recipes){
+    public void setRecipes(List<RecipeSummary> recipes){
         mRecipes = recipes;
         notifyDataSetChanged();
     }
 
-    public Recipe getSelectedRecipe(int position){
+    /**
+     * @return ids of the recipes between the two positions (inclusive), without the category,
+     * loading and exhausted rows
+     */
+    public List<String> getRecipeIds(int fromPosition, int toPosition){
+        List<String> recipeIds = new ArrayList<>();
+        if(mRecipes == null || fromPosition < 0){
+            return recipeIds;
+        }
+        for(int i = fromPosition; i <= toPosition && i < mRecipes.size(); i++){
+            if(getItemViewType(i) == RECIPE_TYPE && mRecipes.get(i).getRecipe_id() != null){
+                recipeIds.add(mRecipes.get(i).getRecipe_id());
+            }
+        }
+        return recipeIds;
+    }
+
+    public RecipeSummary getSelectedRecipe(int position){
         if(mRecipes != null){
             if(mRecipes.size() > 0){
                 return mRecipes.get(position);
@@ -12,7 +12,7 @@ import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.codingwithmitch.foodrecipes.R;
-import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
 
 public class RecipeViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
 
@@ -43,7 +43,7 @@ public class RecipeViewHolder extends RecyclerView.ViewHolder implements View.On
         onRecipeListener.onRecipeClick(getAdapterPosition());
     }
 
-    public void onBind(Recipe recipe) {
+    public void onBind(RecipeSummary recipe) {
         mRequestManager
                 .load(recipe.getImage_url())
                 .into(image);
@@ -0,0 +1,34 @@
+package com.codingwithmitch.foodrecipes.metrics;
+
+import android.support.annotation.NonNull;
+
+import com.codingwithmitch.foodrecipes.BuildConfig;
+
+/**
+ * The Metrics used by the app. Debug builds keep histograms in memory, release builds record
+ * nothing. Tests can set their own.
+ */
+public class AppMetrics {
+
+    private static volatile Metrics sMetrics = BuildConfig.DEBUG ? new HistogramMetrics()
+            : NoOpMetrics.INSTANCE;
+
+    public static Metrics get() {
+        return sMetrics;
+    }
+
+    public static void set(@NonNull Metrics metrics) {
+        sMetrics = metrics;
+    }
+
+    /**
+     * @return what was recorded, or an explanation if the metrics aren't kept in memory
+     */
+    public static String dump() {
+        Metrics metrics = sMetrics;
+        if(metrics instanceof HistogramMetrics) {
+            return ((HistogramMetrics) metrics).dump();
+        }
+        return "Metrics are not recorded (" + metrics.getClass().getSimpleName() + ")";
+    }
+}
@@ -0,0 +1,99 @@
+package com.codingwithmitch.foodrecipes.metrics;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Values recorded for one series. Percentiles are computed over the last SAMPLE_SIZE values,
+ * count/mean/max over all of them. Thread safe.
+ */
+public class Histogram {
+
+    // Enough for stable p99s in a debug session without holding on to much memory
+    public static final int SAMPLE_SIZE = 1024;
+
+    private final long[] mSamples = new long[SAMPLE_SIZE];
+    private int mNext;
+    private long mCount;
+    private long mSum;
+    private long mMax;
+
+    public synchronized void record(long value) {
+        mSamples[mNext] = value;
+        mNext = (mNext + 1) % SAMPLE_SIZE;
+        mCount++;
+        mSum += value;
+        mMax = Math.max(mMax, value);
+    }
+
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    public synchronized long getMax() {
+        return mMax;
+    }
+
+    public synchronized double getMean() {
+        return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 95 for p95
+     * @return the value at that percentile of the recent samples, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] sorted = snapshot();
+        if(sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public long getP50() {
+        return getPercentile(50);
+    }
+
+    public long getP95() {
+        return getPercentile(95);
+    }
+
+    public long getP99() {
+        return getPercentile(99);
+    }
+
+    public synchronized void reset() {
+        mNext = 0;
+        mCount = 0;
+        mSum = 0;
+        mMax = 0;
+    }
+
+    /**
+     * @return the recent samples, sorted
+     */
+    private long[] snapshot() {
+        long[] samples;
+        synchronized (this) {
+            samples = Arrays.copyOf(mSamples, (int) Math.min(mCount, SAMPLE_SIZE));
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    /**
+     * Formats the values as milliseconds, for series of durations.
+     */
+    public String toDurationString() {
+        return String.format(Locale.US,
+                "count=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+                getCount(), getP50() / 1e6, getP95() / 1e6, getP99() / 1e6, getMax() / 1e6);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "count=%d mean=%.2f p50=%d p95=%d p99=%d max=%d",
+                getCount(), getMean(), getP50(), getP95(), getP99(), getMax());
+    }
+}
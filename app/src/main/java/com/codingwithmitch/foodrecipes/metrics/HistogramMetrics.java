@@ -0,0 +1,95 @@
+package com.codingwithmitch.foodrecipes.metrics;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a Histogram in memory for every series (name + tags) that was recorded.
+ *
+ *   HistogramMetrics metrics = new HistogramMetrics();
+ *   AppMetrics.set(metrics);
+ *   ...
+ *   metrics.getHistogram("nbr.total", "resource=search", "cache=miss").getP95();
+ */
+public class HistogramMetrics implements Metrics {
+
+    private final ConcurrentHashMap<String, Histogram> mHistograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(String name, long value, String... tags) {
+        String key = key(name, tags);
+        Histogram histogram = mHistograms.get(key);
+        if(histogram == null) {
+            Histogram created = new Histogram();
+            histogram = mHistograms.putIfAbsent(key, created);
+            if(histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(value);
+    }
+
+    /**
+     * @param name
+     * @param tags in any order
+     * @return null if nothing was recorded for the series
+     */
+    @Nullable
+    public Histogram getHistogram(String name, String... tags) {
+        return mHistograms.get(key(name, tags));
+    }
+
+    /**
+     * @return every series as "name{tag,tag}", sorted
+     */
+    public List<String> getKeys() {
+        List<String> keys = new ArrayList<>(mHistograms.keySet());
+        Collections.sort(keys);
+        return keys;
+    }
+
+    /**
+     * @return every series with its percentiles, one per line. Durations (names ending in _ns)
+     * are shown in ms.
+     */
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        for(String key: getKeys()) {
+            Histogram histogram = mHistograms.get(key);
+            out.append(key).append(": ");
+            out.append(isDuration(key) ? histogram.toDurationString() : histogram.toString());
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    public void reset() {
+        mHistograms.clear();
+    }
+
+    private static boolean isDuration(String key) {
+        int tags = key.indexOf('{');
+        return (tags == -1 ? key : key.substring(0, tags)).endsWith("_ns");
+    }
+
+    private static String key(String name, String... tags) {
+        if(tags.length == 0) {
+            return name;
+        }
+        String[] sorted = tags.clone();
+        Arrays.sort(sorted);
+        StringBuilder key = new StringBuilder(name).append('{');
+        for(int i = 0; i < sorted.length; i++) {
+            if(i > 0) {
+                key.append(',');
+            }
+            key.append(sorted[i]);
+        }
+        return key.append('}').toString();
+    }
+}
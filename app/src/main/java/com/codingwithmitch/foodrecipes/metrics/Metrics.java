@@ -0,0 +1,13 @@
+package com.codingwithmitch.foodrecipes.metrics;
+
+/**
+ * Where timings and other numbers are recorded. Implementations must be thread safe, values are
+ * recorded from the main thread, the disk thread and OkHttp's threads.
+ *
+ * Durations are recorded in nanoseconds and their names end in "_ns". Tags are "key=value" strings, e.g. "resource=search",
+ * "cache=hit". The same name with different tags is a different series.
+ */
+public interface Metrics {
+
+    void record(String name, long value, String... tags);
+}
@@ -0,0 +1,13 @@
+package com.codingwithmitch.foodrecipes.metrics;
+
+/**
+ * Drops everything. The default in release builds.
+ */
+public class NoOpMetrics implements Metrics {
+
+    public static final NoOpMetrics INSTANCE = new NoOpMetrics();
+
+    @Override
+    public void record(String name, long value, String... tags) {
+    }
+}
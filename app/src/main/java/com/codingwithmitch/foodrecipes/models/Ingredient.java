@@ -0,0 +1,58 @@
+package com.codingwithmitch.foodrecipes.models;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Ignore;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+import android.support.annotation.NonNull;
+
+/**
+ * Dictionary of ingredient strings. Every distinct ingredient line is stored once and recipes
+ * point at it through RecipeIngredient.
+ */
+@Entity(tableName = "ingredients", indices = {@Index(value = {"name"}, unique = true)})
+public class Ingredient {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @NonNull
+    @ColumnInfo(name = "name")
+    private String name;
+
+    public Ingredient(long id, @NonNull String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    @Ignore
+    public Ingredient(@NonNull String name) {
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    public void setName(@NonNull String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return "Ingredient{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -4,14 +4,20 @@ package com.codingwithmitch.foodrecipes.models;
 import android.arch.persistence.room.ColumnInfo;
 import android.arch.persistence.room.Entity;
 import android.arch.persistence.room.Ignore;
+import android.arch.persistence.room.Index;
 import android.arch.persistence.room.PrimaryKey;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
 
 import java.util.Arrays;
+import java.util.Objects;
 
-@Entity(tableName = "recipes")
+/**
+ * The (social_rank, recipe_id) index is the sort order of the search results. RecipeDao pages
+ * through it with a SearchCursor.
+ */
+@Entity(tableName = "recipes", indices = {@Index(value = {"social_rank", "recipe_id"})})
 public class Recipe implements Parcelable{
 
     @PrimaryKey
@@ -30,7 +36,11 @@ public class Recipe implements Parcelable{
     @ColumnInfo(name = "social_rank")
     private float social_rank;
 
-    @ColumnInfo(name = "ingredients")
+    /**
+     * Not a column. Ingredients are stored in the ingredients/recipe_ingredients tables and put back
+     * together by RecipeDao.getRecipe()
+     */
+    @Ignore
     private String[] ingredients;
 
     /**
@@ -40,6 +50,7 @@ public class Recipe implements Parcelable{
     private int timestamp;
 
 
+    @Ignore
     public Recipe(@NonNull String recipe_id, String title, String publisher, String[] ingredients,
             String image_url, float social_rank, int timestamp) {
         this.title = title;
@@ -51,7 +62,6 @@ public class Recipe implements Parcelable{
         this.timestamp = timestamp;
     }
 
-    @Ignore
     public Recipe() {
     }
 
@@ -161,6 +171,30 @@ public class Recipe implements Parcelable{
         this.recipe_id = recipe_id;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Recipe recipe = (Recipe) o;
+        return Float.compare(recipe.social_rank, social_rank) == 0
+                && timestamp == recipe.timestamp
+                && Objects.equals(recipe_id, recipe.recipe_id)
+                && Objects.equals(title, recipe.title)
+                && Objects.equals(publisher, recipe.publisher)
+                && Objects.equals(image_url, recipe.image_url)
+                && Arrays.equals(ingredients, recipe.ingredients);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(recipe_id, title, publisher, image_url, social_rank, timestamp);
+        return 31 * result + Arrays.hashCode(ingredients);
+    }
+
     @Override
     public String toString() {
         return "Recipe{" +
@@ -0,0 +1,58 @@
+package com.codingwithmitch.foodrecipes.models;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
+import android.arch.persistence.room.PrimaryKey;
+import android.support.annotation.NonNull;
+
+/**
+ * When a recipe was last saved or opened. Used by RecipeCacheEvictor to decide what to evict.
+ *
+ * This is its own table rather than a column of recipes on purpose: writing it doesn't invalidate
+ * the LiveData queries observing recipes, so recording an access never re-triggers a load.
+ */
+@Entity(tableName = "recipe_access", indices = {@Index(value = {"last_accessed"})})
+public class RecipeAccess {
+
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "recipe_id")
+    private String recipe_id;
+
+    /**
+     * Saves timestamp in **SECONDS**
+     */
+    @ColumnInfo(name = "last_accessed")
+    private int last_accessed;
+
+    public RecipeAccess(@NonNull String recipe_id, int last_accessed) {
+        this.recipe_id = recipe_id;
+        this.last_accessed = last_accessed;
+    }
+
+    @NonNull
+    public String getRecipe_id() {
+        return recipe_id;
+    }
+
+    public void setRecipe_id(@NonNull String recipe_id) {
+        this.recipe_id = recipe_id;
+    }
+
+    public int getLast_accessed() {
+        return last_accessed;
+    }
+
+    public void setLast_accessed(int last_accessed) {
+        this.last_accessed = last_accessed;
+    }
+
+    @Override
+    public String toString() {
+        return "RecipeAccess{" +
+                "recipe_id='" + recipe_id + '\'' +
+                ", last_accessed=" + last_accessed +
+                '}';
+    }
+}
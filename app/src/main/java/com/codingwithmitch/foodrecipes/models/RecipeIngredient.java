@@ -0,0 +1,66 @@
+package com.codingwithmitch.foodrecipes.models;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
+import android.support.annotation.NonNull;
+
+/**
+ * Join table between recipes and ingredients. position keeps the ingredients in the order the API
+ * returned them. The ingredient_id index is the inverted index (ingredient -> recipes) used by search.
+ */
+@Entity(tableName = "recipe_ingredients",
+        primaryKeys = {"recipe_id", "position"},
+        indices = {@Index(value = {"ingredient_id"})})
+public class RecipeIngredient {
+
+    @NonNull
+    @ColumnInfo(name = "recipe_id")
+    private String recipe_id;
+
+    @ColumnInfo(name = "position")
+    private int position;
+
+    @ColumnInfo(name = "ingredient_id")
+    private long ingredient_id;
+
+    public RecipeIngredient(@NonNull String recipe_id, int position, long ingredient_id) {
+        this.recipe_id = recipe_id;
+        this.position = position;
+        this.ingredient_id = ingredient_id;
+    }
+
+    @NonNull
+    public String getRecipe_id() {
+        return recipe_id;
+    }
+
+    public void setRecipe_id(@NonNull String recipe_id) {
+        this.recipe_id = recipe_id;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public long getIngredient_id() {
+        return ingredient_id;
+    }
+
+    public void setIngredient_id(long ingredient_id) {
+        this.ingredient_id = ingredient_id;
+    }
+
+    @Override
+    public String toString() {
+        return "RecipeIngredient{" +
+                "recipe_id='" + recipe_id + '\'' +
+                ", position=" + position +
+                ", ingredient_id=" + ingredient_id +
+                '}';
+    }
+}
@@ -0,0 +1,104 @@
+package com.codingwithmitch.foodrecipes.models;
+
+import android.arch.persistence.room.ColumnInfo;
+
+import java.util.Objects;
+
+/**
+ * The columns of a Recipe that the list screen actually shows.
+ *
+ * Search results are loaded as RecipeSummary so the ingredients column is never read or decoded
+ * for the list. The full Recipe is only loaded in RecipeActivity.
+ */
+public class RecipeSummary {
+
+    @ColumnInfo(name = "recipe_id")
+    private String recipe_id;
+
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "publisher")
+    private String publisher;
+
+    @ColumnInfo(name = "image_url")
+    private String image_url;
+
+    @ColumnInfo(name = "social_rank")
+    private float social_rank;
+
+    public RecipeSummary() {
+    }
+
+    public String getRecipe_id() {
+        return recipe_id;
+    }
+
+    public void setRecipe_id(String recipe_id) {
+        this.recipe_id = recipe_id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getPublisher() {
+        return publisher;
+    }
+
+    public void setPublisher(String publisher) {
+        this.publisher = publisher;
+    }
+
+    public String getImage_url() {
+        return image_url;
+    }
+
+    public void setImage_url(String image_url) {
+        this.image_url = image_url;
+    }
+
+    public float getSocial_rank() {
+        return social_rank;
+    }
+
+    public void setSocial_rank(float social_rank) {
+        this.social_rank = social_rank;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RecipeSummary that = (RecipeSummary) o;
+        return Float.compare(that.social_rank, social_rank) == 0
+                && Objects.equals(recipe_id, that.recipe_id)
+                && Objects.equals(title, that.title)
+                && Objects.equals(publisher, that.publisher)
+                && Objects.equals(image_url, that.image_url);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(recipe_id, title, publisher, image_url, social_rank);
+    }
+
+    @Override
+    public String toString() {
+        return "RecipeSummary{" +
+                "recipe_id='" + recipe_id + '\'' +
+                ", title='" + title + '\'' +
+                ", publisher='" + publisher + '\'' +
+                ", image_url='" + image_url + '\'' +
+                ", social_rank=" + social_rank +
+                '}';
+    }
+}
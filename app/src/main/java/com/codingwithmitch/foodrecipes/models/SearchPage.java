@@ -0,0 +1,90 @@
+package com.codingwithmitch.foodrecipes.models;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.support.annotation.NonNull;
+
+/**
+ * A page of search results that was fetched from the API and when. The recipes of the page are in
+ * search_results. A page that came back empty still has a SearchPage with result_count 0.
+ */
+@Entity(tableName = "search_pages", primaryKeys = {"search_query", "page"})
+public class SearchPage {
+
+    /**
+     * Normalized with SearchResult.normalizeQuery()
+     */
+    @NonNull
+    @ColumnInfo(name = "search_query")
+    private String search_query;
+
+    @ColumnInfo(name = "page")
+    private int page;
+
+    /**
+     * Saves timestamp in **SECONDS**
+     */
+    @ColumnInfo(name = "fetched_at")
+    private int fetched_at;
+
+    @ColumnInfo(name = "result_count")
+    private int result_count;
+
+    public SearchPage(@NonNull String search_query, int page, int fetched_at, int result_count) {
+        this.search_query = search_query;
+        this.page = page;
+        this.fetched_at = fetched_at;
+        this.result_count = result_count;
+    }
+
+    /**
+     * @param refreshTime how long a page stays fresh (in **SECONDS**)
+     */
+    public boolean isFresh(int refreshTime) {
+        int currentTime = (int) (System.currentTimeMillis() / 1000);
+        return currentTime - fetched_at < refreshTime;
+    }
+
+    @NonNull
+    public String getSearch_query() {
+        return search_query;
+    }
+
+    public void setSearch_query(@NonNull String search_query) {
+        this.search_query = search_query;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getFetched_at() {
+        return fetched_at;
+    }
+
+    public void setFetched_at(int fetched_at) {
+        this.fetched_at = fetched_at;
+    }
+
+    public int getResult_count() {
+        return result_count;
+    }
+
+    public void setResult_count(int result_count) {
+        this.result_count = result_count;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchPage{" +
+                "search_query='" + search_query + '\'' +
+                ", page=" + page +
+                ", fetched_at=" + fetched_at +
+                ", result_count=" + result_count +
+                '}';
+    }
+}
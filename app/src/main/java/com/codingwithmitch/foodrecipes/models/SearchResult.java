@@ -0,0 +1,116 @@
+package com.codingwithmitch.foodrecipes.models;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * One recipe of a page of search results, in the order the API returned it.
+ *
+ * Cached pages are read back from here by (search_query, page) so they have exactly the same
+ * recipes in the same order as the network page did.
+ */
+@Entity(tableName = "search_results",
+        primaryKeys = {"search_query", "page", "position"},
+        indices = {@Index(value = {"recipe_id"})})
+public class SearchResult {
+
+    /**
+     * Normalized with normalizeQuery()
+     */
+    @NonNull
+    @ColumnInfo(name = "search_query")
+    private String search_query;
+
+    @ColumnInfo(name = "page")
+    private int page;
+
+    @ColumnInfo(name = "position")
+    private int position;
+
+    @NonNull
+    @ColumnInfo(name = "recipe_id")
+    private String recipe_id;
+
+    /**
+     * Saves timestamp in **SECONDS**
+     */
+    @ColumnInfo(name = "fetched_at")
+    private int fetched_at;
+
+    public SearchResult(@NonNull String search_query, int page, int position,
+            @NonNull String recipe_id, int fetched_at) {
+        this.search_query = search_query;
+        this.page = page;
+        this.position = position;
+        this.recipe_id = recipe_id;
+        this.fetched_at = fetched_at;
+    }
+
+    /**
+     * "  Chicken   Breast " and "chicken breast" are the same search.
+     */
+    @NonNull
+    public static String normalizeQuery(String query) {
+        if(query == null) {
+            return "";
+        }
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.US);
+    }
+
+    @NonNull
+    public String getSearch_query() {
+        return search_query;
+    }
+
+    public void setSearch_query(@NonNull String search_query) {
+        this.search_query = search_query;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    @NonNull
+    public String getRecipe_id() {
+        return recipe_id;
+    }
+
+    public void setRecipe_id(@NonNull String recipe_id) {
+        this.recipe_id = recipe_id;
+    }
+
+    public int getFetched_at() {
+        return fetched_at;
+    }
+
+    public void setFetched_at(int fetched_at) {
+        this.fetched_at = fetched_at;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{" +
+                "search_query='" + search_query + '\'' +
+                ", page=" + page +
+                ", position=" + position +
+                ", recipe_id='" + recipe_id + '\'' +
+                ", fetched_at=" + fetched_at +
+                '}';
+    }
+}
@@ -2,25 +2,37 @@ package com.codingwithmitch.foodrecipes.persistence;
 
 import android.arch.persistence.room.TypeConverter;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
-import java.lang.reflect.Type;
+import com.codingwithmitch.foodrecipes.requests.json.StringArrayTypeAdapter;
 
+import java.io.IOException;
 
 
+/**
+ * Converts String[] to and from a JSON array of strings (the format of the old ingredients column).
+ *
+ * This used to go through a new Gson and TypeToken on every call. It now uses the same
+ * StringArrayTypeAdapter as the network models: no reflection and no intermediate JSON tree, just
+ * the strings.
+ */
 public class Converters {
 
     @TypeConverter
     public static String fromArrayList(String[] list) {
-        Gson gson = new Gson();
-        String json = gson.toJson(list);
-        return json;
+        return StringArrayTypeAdapter.INSTANCE.toJson(list);
     }
 
+    /**
+     * @return null for a null or empty column, like the Gson version did
+     */
     @TypeConverter
     public static String[] fromString(String value) {
-        Type listType = new TypeToken<String[]>(){}.getType();
-        return new Gson().fromJson(value, listType);
+        if(value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return StringArrayTypeAdapter.INSTANCE.fromJson(value);
+        } catch (IOException | IllegalStateException e) {
+            throw new IllegalArgumentException("Not a JSON string array: " + value, e);
+        }
     }
 }
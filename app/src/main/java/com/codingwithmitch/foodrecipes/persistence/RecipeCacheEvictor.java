@@ -0,0 +1,276 @@
+package com.codingwithmitch.foodrecipes.persistence;
+
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.database.Cursor;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.util.Priority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps the recipes cache bounded. Without this the recipes table only grows.
+ *
+ * A compaction pass runs on AppExecutors.diskRead() with BACKGROUND priority and:
+ * 1) removes recipes that haven't been accessed for longer than the TTL
+ * 2) removes least recently used recipes until there are at most maxRecipes
+ * 3) removes least recently used recipes until the db uses at most maxBytes
+ *
+ * Recipes that are pinned (currently shown on screen) are never evicted.
+ *
+ * Counting, sizing and finding the candidates are reads and stay off the writer thread, usually
+ * nothing has to be evicted and the writer is never bothered. Only the deletes are handed to
+ * AppExecutors.diskIO().
+ */
+public class RecipeCacheEvictor {
+    private static final String TAG = "RecipeCacheEvictor";
+
+    /**
+     * Told which recipes were removed, e.g. to drop them from an in-memory cache.
+     */
+    public interface EvictionListener {
+        @WorkerThread
+        void onEvicted(List<String> recipeIds);
+    }
+
+    // How many recipes are looked at / deleted at a time
+    private static final int BATCH_SIZE = 100;
+
+    // Run a compaction after this many recipes were written
+    private static final int WRITES_PER_COMPACTION = 300;
+
+    private final RecipeDatabase mDatabase;
+    private final RecipeDao mRecipeDao;
+    private final AppExecutors mAppExecutors;
+
+    private int mMaxRecipes;
+    private long mMaxBytes;
+    private int mTimeToLive;
+
+    // recipe_id -> number of screens showing it
+    private final Map<String, Integer> mPinned = new HashMap<>();
+
+    private volatile EvictionListener mEvictionListener;
+
+    private int mWritesSinceCompaction;
+    private boolean mCompactionScheduled;
+
+    /**
+     * @param maxRecipes max number of recipes kept in the cache
+     * @param maxBytes max size of the db in bytes
+     * @param timeToLive recipes not accessed for this long are removed (in **SECONDS**)
+     */
+    public RecipeCacheEvictor(RecipeDatabase database, AppExecutors appExecutors,
+            int maxRecipes, long maxBytes, int timeToLive) {
+        mDatabase = database;
+        mRecipeDao = database.getRecipeDao();
+        mAppExecutors = appExecutors;
+        mMaxRecipes = maxRecipes;
+        mMaxBytes = maxBytes;
+        mTimeToLive = timeToLive;
+    }
+
+    public void setEvictionListener(EvictionListener evictionListener) {
+        mEvictionListener = evictionListener;
+    }
+
+    public synchronized void setLimits(int maxRecipes, long maxBytes, int timeToLive) {
+        mMaxRecipes = maxRecipes;
+        mMaxBytes = maxBytes;
+        mTimeToLive = timeToLive;
+    }
+
+    /**
+     * Protects recipes from eviction until unpin() is called. Calls are counted, so two screens
+     * can pin the same recipe.
+     */
+    public synchronized void pin(Collection<String> recipeIds) {
+        for(String recipeId: recipeIds) {
+            Integer count = mPinned.get(recipeId);
+            mPinned.put(recipeId, count == null ? 1 : count + 1);
+        }
+    }
+
+    public synchronized void unpin(Collection<String> recipeIds) {
+        for(String recipeId: recipeIds) {
+            Integer count = mPinned.get(recipeId);
+            if(count == null || count <= 1) {
+                mPinned.remove(recipeId);
+            } else {
+                mPinned.put(recipeId, count - 1);
+            }
+        }
+    }
+
+    private synchronized boolean isPinned(String recipeId) {
+        return mPinned.containsKey(recipeId);
+    }
+
+    /**
+     * Called after recipes are saved. Schedules a compaction once enough have been written.
+     * @param count number of recipes written
+     */
+    public void onRecipesWritten(int count) {
+        boolean schedule;
+        synchronized (this) {
+            mWritesSinceCompaction += count;
+            schedule = mWritesSinceCompaction >= WRITES_PER_COMPACTION;
+        }
+        if(schedule) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Runs a compaction pass on a disk read thread. Does nothing if one is already waiting to run.
+     */
+    public void scheduleCompaction() {
+        synchronized (this) {
+            if(mCompactionScheduled) {
+                return;
+            }
+            mCompactionScheduled = true;
+        }
+        mAppExecutors.diskRead().execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (RecipeCacheEvictor.this) {
+                    mCompactionScheduled = false;
+                    mWritesSinceCompaction = 0;
+                }
+                compact();
+            }
+        }, Priority.BACKGROUND);
+    }
+
+    /**
+     * Must not be called on AppExecutors.diskIO(), it waits there for the deletes.
+     * @return number of recipes evicted
+     */
+    @WorkerThread
+    public int compact() {
+        int maxRecipes;
+        long maxBytes;
+        int timeToLive;
+        synchronized (this) {
+            maxRecipes = mMaxRecipes;
+            maxBytes = mMaxBytes;
+            timeToLive = mTimeToLive;
+        }
+
+        int now = (int) (System.currentTimeMillis() / 1000);
+        int evicted = 0;
+
+        // 1) expired
+        evicted += evict(now - timeToLive, Integer.MAX_VALUE);
+
+        // 2) too many recipes
+        int excess = mRecipeDao.getRecipeCount() - maxRecipes;
+        if(excess > 0) {
+            evicted += evict(Integer.MAX_VALUE, excess);
+        }
+
+        // 3) too many bytes. Space is freed in whole pages so re-check after every batch.
+        while(getUsedBytes() > maxBytes) {
+            int count = evict(Integer.MAX_VALUE, BATCH_SIZE);
+            if(count == 0) {
+                break;
+            }
+            evicted += count;
+        }
+
+        Log.i(TAG, "compact: evicted " + evicted + " recipes");
+        return evicted;
+    }
+
+    /**
+     * Evicts up to maxCount of the least recently used, unpinned recipes accessed before olderThan.
+     * @return number of recipes evicted
+     */
+    @WorkerThread
+    private int evict(int olderThan, int maxCount) {
+        int evicted = 0;
+        int offset = 0;
+        while(evicted < maxCount) {
+            // pinned recipes stay in the table, so skip over the ones already looked at
+            List<String> candidates = mRecipeDao.getLeastRecentlyUsed(olderThan, offset + BATCH_SIZE);
+            if(candidates.size() <= offset) {
+                break;
+            }
+            List<String> batch = new ArrayList<>();
+            for(String recipeId: candidates.subList(offset, candidates.size())) {
+                if(evicted + batch.size() >= maxCount) {
+                    break;
+                }
+                if(isPinned(recipeId)) {
+                    offset++;
+                } else {
+                    batch.add(recipeId);
+                }
+            }
+            if(batch.isEmpty()) {
+                continue;
+            }
+            if(!delete(batch)) {
+                break;
+            }
+            evicted += batch.size();
+            EvictionListener evictionListener = mEvictionListener;
+            if(evictionListener != null) {
+                evictionListener.onEvicted(batch);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Deletes on the writer thread and waits for it, the next scan has to see the result.
+     * @return false if interrupted while waiting
+     */
+    @WorkerThread
+    private boolean delete(final List<String> recipeIds) {
+        FutureTask<Void> delete = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {
+                mRecipeDao.deleteRecipes(recipeIds);
+            }
+        }, null);
+        mAppExecutors.diskIO().execute(delete, Priority.BACKGROUND);
+        try {
+            delete.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("deleting evicted recipes failed", e.getCause());
+        }
+    }
+
+    /**
+     * Bytes used by the db, not counting free pages left behind by deletes.
+     */
+    @WorkerThread
+    private long getUsedBytes() {
+        SupportSQLiteDatabase db = mDatabase.getOpenHelper().getReadableDatabase();
+        return (queryLong(db, "PRAGMA page_count") - queryLong(db, "PRAGMA freelist_count"))
+                * queryLong(db, "PRAGMA page_size");
+    }
+
+    private static long queryLong(SupportSQLiteDatabase db, String sql) {
+        Cursor cursor = db.query(sql);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
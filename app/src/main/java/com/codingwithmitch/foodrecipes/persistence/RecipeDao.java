@@ -4,53 +4,312 @@ package com.codingwithmitch.foodrecipes.persistence;
 import static android.arch.persistence.room.OnConflictStrategy.IGNORE;
 import static android.arch.persistence.room.OnConflictStrategy.REPLACE;
 
+import android.arch.core.util.Function;
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Transformations;
+import android.arch.persistence.db.SupportSQLiteQuery;
 import android.arch.persistence.room.Dao;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.Query;
+import android.arch.persistence.room.RawQuery;
+import android.arch.persistence.room.Transaction;
+import android.support.annotation.Nullable;
 
+import com.codingwithmitch.foodrecipes.models.Ingredient;
 import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.models.RecipeAccess;
+import com.codingwithmitch.foodrecipes.models.RecipeIngredient;
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
+import com.codingwithmitch.foodrecipes.models.SearchPage;
+import com.codingwithmitch.foodrecipes.models.SearchResult;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Dao
-public interface RecipeDao {
+public abstract class RecipeDao {
 
     /**
      * This inserts a list of recipes and returns an array of the indexes of what recipes were inserted.
      * If not inserted it will returned for -1 when
+     *
+     * Only the recipes row is written. Search results don't have ingredients so there is nothing
+     * to store for them.
      * @param recipes
      * @return
      */
     @Insert(onConflict = IGNORE)
-    long[] insertRecipes(Recipe... recipes);
+    public abstract long[] insertRecipes(Recipe... recipes);
+
+    /**
+     * Saves a page of search results in one transaction: one commit and one invalidation of the
+     * observing queries for the whole page instead of one per recipe.
+     *
+     * New recipes are inserted. Recipes that are already in the cache only get the fields that come
+     * with a search result updated, so their ingredients and timestamp aren't erased.
+     * @param recipes
+     */
+    @Transaction
+    public void upsertRecipes(Recipe... recipes) {
+        long[] rowIds = insertRecipes(recipes);
+        RecipeAccess[] accesses = new RecipeAccess[recipes.length];
+        int now = (int) (System.currentTimeMillis() / 1000);
+        for(int i = 0; i < rowIds.length; i++) {
+            accesses[i] = new RecipeAccess(recipes[i].getRecipe_id(), now);
+            if(rowIds[i] == -1) {
+                updateRecipe(recipes[i].getRecipe_id(),
+                        recipes[i].getTitle(),
+                        recipes[i].getPublisher(),
+                        recipes[i].getImage_url(),
+                        recipes[i].getSocial_rank());
+            }
+        }
+        touchRecipes(accesses);
+    }
+
+    /**
+     * Saves a page of search results: the recipes (see upsertRecipes()) and their order for
+     * (query, page) in search_results, replacing what was stored for that page before. The page is
+     * recorded in search_pages even if it has no recipes.
+     * @param query normalized with SearchResult.normalizeQuery()
+     * @param page
+     * @param recipes in the order the API returned them
+     */
+    @Transaction
+    public void saveSearchResults(String query, int page, Recipe... recipes) {
+        upsertRecipes(recipes);
+        List<String> recipeIds = new ArrayList<>(recipes.length);
+        for(Recipe recipe: recipes) {
+            recipeIds.add(recipe.getRecipe_id());
+        }
+        saveSearchResultIds(query, page, recipeIds);
+    }
+
+    /**
+     * Saves the order of a page of search results whose recipes are already stored (e.g. by
+     * SearchPageWriter), replacing what was stored for that page before. The page is recorded in
+     * search_pages even if recipeIds is empty: that's how the end of the results is told apart from
+     * a page that was never fetched.
+     * @param query normalized with SearchResult.normalizeQuery()
+     * @param page
+     * @param recipeIds in the order the API returned them
+     */
+    @Transaction
+    public void saveSearchResultIds(String query, int page, List<String> recipeIds) {
+        deleteSearchResults(query, page);
+        int now = (int) (System.currentTimeMillis() / 1000);
+        SearchResult[] results = new SearchResult[recipeIds.size()];
+        for(int position = 0; position < results.length; position++) {
+            results[position] = new SearchResult(query, page, position, recipeIds.get(position), now);
+        }
+        insertSearchResults(results);
+        insertSearchPage(new SearchPage(query, page, now, results.length));
+    }
+
+    @Insert(onConflict = REPLACE)
+    public abstract void insertSearchPage(SearchPage page);
 
     @Insert(onConflict = REPLACE)
-    void insertRecipe(Recipe recipe);
+    public abstract void insertSearchResults(SearchResult... results);
+
+    @Query("DELETE FROM search_results WHERE search_query = :query AND page = :page")
+    public abstract void deleteSearchResults(String query, int page);
+
+    /**
+     * Inserts or replaces the recipe together with its ingredients.
+     * @param recipe
+     */
+    @Transaction
+    public void insertRecipe(Recipe recipe) {
+        insertRecipeRow(recipe);
+        if(recipe.getIngredients() != null) {
+            setIngredients(recipe.getRecipe_id(), recipe.getIngredients());
+        }
+        touchRecipes(new RecipeAccess(recipe.getRecipe_id(),
+                (int) (System.currentTimeMillis() / 1000)));
+    }
+
+    @Insert(onConflict = REPLACE)
+    public abstract void insertRecipeRow(Recipe recipe);
 
     /**
      * We can write custom queries here
      */
     @Query("UPDATE recipes SET title = :title, publisher = :publisher, "
             + "image_url = :image_url, social_rank = :social_rank WHERE recipe_id = :recipe_id")
-    void updateRecipe(String recipe_id, String title, String publisher,
+    public abstract void updateRecipe(String recipe_id, String title, String publisher,
             String image_url, float social_rank);
 
+    /**
+     * Replaces the ingredients of a recipe. Each ingredient string is looked up in (or added to)
+     * the ingredients dictionary and linked with its position.
+     * @param recipe_id
+     * @param ingredients
+     */
+    @Transaction
+    public void setIngredients(String recipe_id, String[] ingredients) {
+        deleteRecipeIngredients(recipe_id);
+        for(int position = 0; position < ingredients.length; position++) {
+            String name = ingredients[position];
+            if(name == null) {
+                continue;
+            }
+            long ingredientId = insertIngredient(new Ingredient(name));
+            if(ingredientId == -1) {
+                ingredientId = getIngredientId(name);
+            }
+            insertRecipeIngredient(new RecipeIngredient(recipe_id, position, ingredientId));
+        }
+    }
+
+    @Insert(onConflict = IGNORE)
+    public abstract long insertIngredient(Ingredient ingredient);
+
+    @Query("SELECT id FROM ingredients WHERE name = :name")
+    public abstract long getIngredientId(String name);
+
+    @Insert(onConflict = REPLACE)
+    public abstract void insertRecipeIngredient(RecipeIngredient recipeIngredient);
+
+    @Query("DELETE FROM recipe_ingredients WHERE recipe_id = :recipe_id")
+    public abstract void deleteRecipeIngredients(String recipe_id);
+
     /**
      * WE CAN RETURN AND GRAB LiveData in Room!!!!
+     *
+     * Searches titles and ingredients through the FTS indexes (see RecipeFts) instead of
+     * scanning the whole table with LIKE. Returns a single page: the pageSize recipes that come
+     * right after the cursor, so deeper pages don't re-read the ones already loaded. Without a
+     * cursor the page is found by its number, which has to skip the rows before it.
+     *
+     * Only the RecipeSummary columns are selected. Use getRecipe() for the full recipe.
+     * @param query
+     * @param pageNumber first page is 1, only used if there is no cursor
+     * @param after last recipe of the previous page as returned by this search (a page in the API's
+     *              order doesn't work as a cursor), null for the first page or if it isn't known
+     * @param pageSize
+     * @return
+     */
+    public LiveData<List<RecipeSummary>> searchRecipes(String query, int pageNumber,
+            @Nullable SearchCursor after, int pageSize) {
+        return searchRecipesFts(RecipeFts.searchQuery(query, after,
+                Math.max(0, pageNumber - 1) * pageSize, pageSize));
+    }
+
+    /**
+     * Reads a page through the search_results primary key (search_query, page, position).
      * @param query
-     * @param pageNumber
+     * @param page
+     * @return
+     */
+    @Query("SELECT recipes.recipe_id, recipes.title, recipes.publisher, recipes.image_url, "
+            + "recipes.social_rank FROM search_results "
+            + "INNER JOIN recipes ON recipes.recipe_id = search_results.recipe_id "
+            + "WHERE search_results.search_query = :query AND search_results.page = :page "
+            + "ORDER BY search_results.position")
+    public abstract LiveData<List<RecipeSummary>> getSearchResults(String query, int page);
+
+    /**
+     * @return the pages from fromPage to toPage that were fetched (with when they were), the ones
+     * that never were aren't in the list
+     */
+    @Query("SELECT * FROM search_pages WHERE search_query = :query "
+            + "AND page BETWEEN :fromPage AND :toPage")
+    public abstract LiveData<List<SearchPage>> getSearchPages(String query, int fromPage,
+            int toPage);
+
+    /**
+     * Room can't validate queries against the FTS tables at compile time, so the search goes through
+     * here. observedEntities keeps the LiveData updating when recipes or their ingredients change.
+     * @param query built by RecipeFts.searchQuery()
      * @return
      */
-    @Query("SELECT * FROM recipes WHERE title LIKE '%'|| :query ||'%' OR ingredients LIKE '%'|| :query ||'%'"
-            + "ORDER BY social_rank DESC LIMIT (:pageNumber * 30)")
-    LiveData<List<Recipe>> searchRecipes(String query, int pageNumber);
+    @RawQuery(observedEntities = {Recipe.class, RecipeIngredient.class})
+    public abstract LiveData<List<RecipeSummary>> searchRecipesFts(SupportSQLiteQuery query);
 
     /**
      * Using this in RecipeActivity
+     *
+     * Loads the recipe and its ingredients with one join and puts them back together as a Recipe.
      * @param recipe_id
      * @return
      */
-    @Query("SELECT * FROM recipes WHERE recipe_id = :recipe_id")
-    LiveData<Recipe> getRecipe(String recipe_id);
+    public LiveData<Recipe> getRecipe(String recipe_id) {
+        return Transformations.map(getRecipeRows(recipe_id),
+                new Function<List<RecipeIngredientRow>, Recipe>() {
+                    @Override
+                    public Recipe apply(List<RecipeIngredientRow> rows) {
+                        return RecipeIngredientRow.toRecipe(rows);
+                    }
+                });
+    }
+
+    /**
+     * recipe_ingredients is read through its primary key (recipe_id, position), so the rows come
+     * back in ingredient order and ingredients is read through its primary key.
+     * @param recipe_id
+     * @return one row per ingredient, or a single row with a null ingredient if there are none
+     */
+    @Query("SELECT recipes.*, ingredients.name AS ingredient FROM recipes "
+            + "LEFT JOIN recipe_ingredients ON recipe_ingredients.recipe_id = recipes.recipe_id "
+            + "LEFT JOIN ingredients ON ingredients.id = recipe_ingredients.ingredient_id "
+            + "WHERE recipes.recipe_id = :recipe_id ORDER BY recipe_ingredients.position")
+    public abstract LiveData<List<RecipeIngredientRow>> getRecipeRows(String recipe_id);
+
+    /**
+     * Records when recipes were last saved or opened (see RecipeAccess).
+     * @param accesses
+     */
+    @Insert(onConflict = REPLACE)
+    public abstract void touchRecipes(RecipeAccess... accesses);
+
+    @Query("SELECT COUNT(*) FROM recipes")
+    public abstract int getRecipeCount();
+
+    /**
+     * Least recently used recipes first.
+     * @param olderThan only recipes last accessed before this time (in seconds)
+     * @param limit
+     * @return
+     */
+    @Query("SELECT recipe_id FROM recipe_access WHERE last_accessed < :olderThan "
+            + "ORDER BY last_accessed ASC LIMIT :limit")
+    public abstract List<String> getLeastRecentlyUsed(int olderThan, int limit);
+
+    /**
+     * Removes recipes from the cache along with their ingredient links. Ingredients that no recipe
+     * uses anymore are removed from the dictionary too.
+     * @param recipe_ids
+     */
+    @Transaction
+    public void deleteRecipes(List<String> recipe_ids) {
+        deleteRecipeRows(recipe_ids);
+        deleteIngredientLinks(recipe_ids);
+        deleteRecipeAccess(recipe_ids);
+        // pages that lost a recipe aren't complete anymore, forget they were fetched
+        deleteSearchPagesOf(recipe_ids);
+        deleteSearchResultsOf(recipe_ids);
+        deleteUnusedIngredients();
+    }
+
+    @Query("DELETE FROM recipes WHERE recipe_id IN (:recipe_ids)")
+    public abstract void deleteRecipeRows(List<String> recipe_ids);
+
+    @Query("DELETE FROM recipe_ingredients WHERE recipe_id IN (:recipe_ids)")
+    public abstract void deleteIngredientLinks(List<String> recipe_ids);
+
+    @Query("DELETE FROM recipe_access WHERE recipe_id IN (:recipe_ids)")
+    public abstract void deleteRecipeAccess(List<String> recipe_ids);
+
+    @Query("DELETE FROM search_pages WHERE EXISTS (SELECT 1 FROM search_results "
+            + "WHERE search_results.search_query = search_pages.search_query "
+            + "AND search_results.page = search_pages.page "
+            + "AND search_results.recipe_id IN (:recipe_ids))")
+    public abstract void deleteSearchPagesOf(List<String> recipe_ids);
+
+    @Query("DELETE FROM search_results WHERE recipe_id IN (:recipe_ids)")
+    public abstract void deleteSearchResultsOf(List<String> recipe_ids);
+
+    @Query("DELETE FROM ingredients WHERE id NOT IN (SELECT ingredient_id FROM recipe_ingredients)")
+    public abstract void deleteUnusedIngredients();
 }
@@ -1,15 +1,25 @@
 package com.codingwithmitch.foodrecipes.persistence;
 
+import android.arch.persistence.db.SupportSQLiteDatabase;
 import android.arch.persistence.room.Database;
 import android.arch.persistence.room.Room;
 import android.arch.persistence.room.RoomDatabase;
 import android.arch.persistence.room.TypeConverters;
+import android.arch.persistence.room.migration.Migration;
 import android.content.Context;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
 
+import com.codingwithmitch.foodrecipes.models.Ingredient;
 import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.models.RecipeAccess;
+import com.codingwithmitch.foodrecipes.models.RecipeIngredient;
+import com.codingwithmitch.foodrecipes.models.SearchPage;
+import com.codingwithmitch.foodrecipes.models.SearchResult;
 
 
-@Database(entities = {Recipe.class}, version = 1)
+@Database(entities = {Recipe.class, Ingredient.class, RecipeIngredient.class, RecipeAccess.class,
+        SearchResult.class, SearchPage.class}, version = 7)
 @TypeConverters({Converters.class})
 public abstract class RecipeDatabase extends RoomDatabase {
 
@@ -20,10 +30,165 @@ public abstract class RecipeDatabase extends RoomDatabase {
     public static RecipeDatabase getInstance(final Context context) {
         if(instance == null) {
             instance = Room.databaseBuilder(context.getApplicationContext(),
-                    RecipeDatabase.class, DATABASE_NAME).build();
+                    RecipeDatabase.class, DATABASE_NAME)
+                    .addCallback(CALLBACK)
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4,
+                            MIGRATION_4_5, MIGRATION_5_6,
+                            MIGRATION_6_7)
+                    .build();
         }
         return instance;
     }
 
+    /**
+     * Room only knows about the entities, so anything else (the FTS indexes) is set up here.
+     */
+    static final Callback CALLBACK = new Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            RecipeFts.create(db);
+        }
+
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            RecipeFts.enableTriggers(db);
+        }
+    };
+
+    /**
+     * Version 2 adds the recipes_fts full-text index. Existing rows are indexed in place.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            RecipeFts.createIndex(database, RecipeFts.TABLE_NAME, "recipes", "title", "ingredients");
+            RecipeFts.rebuild(database, RecipeFts.TABLE_NAME);
+        }
+    };
+
+    /**
+     * Version 3 adds the (social_rank, recipe_id) index used for keyset pagination.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_recipes_social_rank_recipe_id` "
+                    + "ON `recipes` (`social_rank`, `recipe_id`)");
+        }
+    };
+
+    /**
+     * Version 4 moves ingredients out of the JSON column in recipes into the ingredients dictionary
+     * and the recipe_ingredients join table.
+     *
+     * 1) create the new tables
+     * 2) decode every recipe's JSON ingredients and copy them over
+     * 3) rebuild recipes without the ingredients column (SQLite can't drop columns)
+     * 4) rebuild the FTS indexes for the new layout
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `ingredients` ("
+                    + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `name` TEXT NOT NULL)");
+            database.execSQL("CREATE UNIQUE INDEX `index_ingredients_name` "
+                    + "ON `ingredients` (`name`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `recipe_ingredients` ("
+                    + "`recipe_id` TEXT NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`ingredient_id` INTEGER NOT NULL, PRIMARY KEY(`recipe_id`, `position`))");
+            database.execSQL("CREATE INDEX `index_recipe_ingredients_ingredient_id` "
+                    + "ON `recipe_ingredients` (`ingredient_id`)");
+
+            Cursor cursor = database.query("SELECT `recipe_id`, `ingredients` FROM `recipes` "
+                    + "WHERE `ingredients` IS NOT NULL");
+            try {
+                while(cursor.moveToNext()) {
+                    String recipeId = cursor.getString(0);
+                    String[] ingredients = Converters.fromString(cursor.getString(1));
+                    if(ingredients == null) {
+                        continue;
+                    }
+                    for(int position = 0; position < ingredients.length; position++) {
+                        if(ingredients[position] == null) {
+                            continue;
+                        }
+                        database.execSQL("INSERT OR IGNORE INTO `ingredients` (`name`) VALUES (?)",
+                                new Object[]{ingredients[position]});
+                        database.execSQL("INSERT OR REPLACE INTO `recipe_ingredients` "
+                                        + "(`recipe_id`, `position`, `ingredient_id`) "
+                                        + "SELECT ?, ?, `id` FROM `ingredients` WHERE `name` = ?",
+                                new Object[]{recipeId, position, ingredients[position]});
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+
+            // the old recipes_fts also indexed the ingredients column, drop it before the column goes
+            RecipeFts.drop(database, RecipeFts.TABLE_NAME);
+            database.execSQL("CREATE TABLE IF NOT EXISTS `recipes_new` ("
+                    + "`recipe_id` TEXT NOT NULL, `title` TEXT, `publisher` TEXT, `image_url` TEXT, "
+                    + "`social_rank` REAL NOT NULL, `timestamp` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`recipe_id`))");
+            database.execSQL("INSERT INTO `recipes_new` (`recipe_id`, `title`, `publisher`, "
+                    + "`image_url`, `social_rank`, `timestamp`) SELECT `recipe_id`, `title`, "
+                    + "`publisher`, `image_url`, `social_rank`, `timestamp` FROM `recipes`");
+            database.execSQL("DROP TABLE `recipes`");
+            database.execSQL("ALTER TABLE `recipes_new` RENAME TO `recipes`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_recipes_social_rank_recipe_id` "
+                    + "ON `recipes` (`social_rank`, `recipe_id`)");
+
+            RecipeFts.create(database);
+            RecipeFts.rebuild(database);
+        }
+    };
+
+    /**
+     * Version 5 adds recipe_access for cache eviction. Existing recipes start out with their
+     * refresh timestamp as the last access.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `recipe_access` ("
+                    + "`recipe_id` TEXT NOT NULL, `last_accessed` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`recipe_id`))");
+            database.execSQL("CREATE INDEX `index_recipe_access_last_accessed` "
+                    + "ON `recipe_access` (`last_accessed`)");
+            database.execSQL("INSERT INTO `recipe_access` (`recipe_id`, `last_accessed`) "
+                    + "SELECT `recipe_id`, `timestamp` FROM `recipes`");
+        }
+    };
+
+    /**
+     * Version 6 adds search_results, the order of the recipes on each cached search page.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `search_results` ("
+                    + "`search_query` TEXT NOT NULL, `page` INTEGER NOT NULL, "
+                    + "`position` INTEGER NOT NULL, `recipe_id` TEXT NOT NULL, "
+                    + "`fetched_at` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`search_query`, `page`, `position`))");
+            database.execSQL("CREATE INDEX `index_search_results_recipe_id` "
+                    + "ON `search_results` (`recipe_id`)");
+        }
+    };
+
+    /**
+     * Version 7 adds search_pages, when each cached search page was fetched.
+     * Pages cached before that are treated as never fetched.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `search_pages` ("
+                    + "`search_query` TEXT NOT NULL, `page` INTEGER NOT NULL, "
+                    + "`fetched_at` INTEGER NOT NULL, `result_count` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`search_query`, `page`))");
+        }
+    };
+
     public abstract RecipeDao getRecipeDao();
 }
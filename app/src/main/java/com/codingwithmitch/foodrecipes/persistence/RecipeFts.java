@@ -0,0 +1,190 @@
+package com.codingwithmitch.foodrecipes.persistence;
+
+import android.arch.persistence.db.SimpleSQLiteQuery;
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.SupportSQLiteQuery;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Full-text indexes for recipe search.
+ *
+ * recipes_fts indexes recipe titles and ingredients_fts indexes the ingredients dictionary. Both are
+ * FTS4 "external content" tables: they only store the index and read the actual text back out of
+ * recipes/ingredients. The triggers below keep them in sync with every insert/update/delete so the
+ * DAO never has to touch them directly.
+ *
+ * Since every ingredient string is stored once, ingredients_fts stays small no matter how many
+ * recipes share an ingredient. Matching ingredients are mapped back to recipes through the
+ * recipe_ingredients.ingredient_id index.
+ *
+ * Room 1.1 has no FTS entity support, so the tables are created by hand in RecipeDatabase
+ * (on create and in the migrations) and queried through @RawQuery.
+ */
+public class RecipeFts {
+
+    public static final String TABLE_NAME = "recipes_fts";
+
+    public static final String INGREDIENTS_TABLE_NAME = "ingredients_fts";
+
+    // Only the columns in RecipeSummary. Leaves out ingredients so it is never read or decoded.
+    private static final String SUMMARY_SELECT =
+            "SELECT recipe_id, title, publisher, image_url, social_rank FROM recipes";
+
+    // A recipe matches one term of the query if its title or one of its ingredients does. Every term
+    // has to match, but not in the same place: "chicken garlic" finds chicken recipes with garlic.
+    private static final String TERM_CLAUSE =
+            "(rowid IN (SELECT docid FROM recipes_fts WHERE recipes_fts MATCH ?) "
+                    + "OR recipe_id IN (SELECT recipe_id FROM recipe_ingredients "
+                    + "WHERE ingredient_id IN "
+                    + "(SELECT docid FROM ingredients_fts WHERE ingredients_fts MATCH ?)))";
+
+    // Keyset condition for "after the cursor" in (social_rank DESC, recipe_id DESC) order
+    private static final String AFTER_CLAUSE =
+            "(social_rank < ? OR (social_rank = ? AND recipe_id < ?))";
+
+    private static final String ORDER_AND_LIMIT =
+            " ORDER BY social_rank DESC, recipe_id DESC LIMIT ?";
+
+    /**
+     * Creates the indexes and their triggers. Safe to call more than once.
+     */
+    public static void create(SupportSQLiteDatabase db) {
+        createIndex(db, TABLE_NAME, "recipes", "title");
+        createIndex(db, INGREDIENTS_TABLE_NAME, "ingredients", "name");
+    }
+
+    /**
+     * Re-indexes every row currently in recipes and ingredients. Used when the indexes are added
+     * to an existing db.
+     */
+    public static void rebuild(SupportSQLiteDatabase db) {
+        rebuild(db, TABLE_NAME);
+        rebuild(db, INGREDIENTS_TABLE_NAME);
+    }
+
+    static void rebuild(SupportSQLiteDatabase db, String fts) {
+        db.execSQL("INSERT INTO `" + fts + "`(`" + fts + "`) VALUES('rebuild')");
+    }
+
+    /**
+     * Drops an index and its triggers.
+     */
+    public static void drop(SupportSQLiteDatabase db, String fts) {
+        db.execSQL("DROP TRIGGER IF EXISTS `" + fts + "_bu`");
+        db.execSQL("DROP TRIGGER IF EXISTS `" + fts + "_bd`");
+        db.execSQL("DROP TRIGGER IF EXISTS `" + fts + "_au`");
+        db.execSQL("DROP TRIGGER IF EXISTS `" + fts + "_ai`");
+        db.execSQL("DROP TABLE IF EXISTS `" + fts + "`");
+    }
+
+    /**
+     * Creates an external content FTS table over some columns of a table, plus the triggers that
+     * keep it up to date. The migrations use this directly to build the index of older versions.
+     */
+    static void createIndex(SupportSQLiteDatabase db, String fts, String table, String... columns) {
+        StringBuilder names = new StringBuilder();
+        StringBuilder newValues = new StringBuilder();
+        for(String column: columns) {
+            names.append(", `").append(column).append('`');
+            newValues.append(", new.`").append(column).append('`');
+        }
+
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `" + fts + "` USING fts4("
+                + "content=`" + table + "`" + names + ")");
+
+        // External content tables need the old values deleted BEFORE the row changes.
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `" + fts + "_bu` BEFORE UPDATE ON `" + table
+                + "` BEGIN DELETE FROM `" + fts + "` WHERE `docid` = old.`rowid`; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `" + fts + "_bd` BEFORE DELETE ON `" + table
+                + "` BEGIN DELETE FROM `" + fts + "` WHERE `docid` = old.`rowid`; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `" + fts + "_au` AFTER UPDATE ON `" + table
+                + "` BEGIN INSERT INTO `" + fts + "`(`docid`" + names + ") "
+                + "VALUES (new.`rowid`" + newValues + "); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `" + fts + "_ai` AFTER INSERT ON `" + table
+                + "` BEGIN INSERT INTO `" + fts + "`(`docid`" + names + ") "
+                + "VALUES (new.`rowid`" + newValues + "); END");
+    }
+
+    /**
+     * REPLACE conflicts delete the old row without firing delete triggers unless recursive triggers
+     * are on. Without this, RecipeDao.insertRecipe() would leave stale entries in the index.
+     * Has to be set on every connection that is opened.
+     */
+    public static void enableTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("PRAGMA recursive_triggers = ON");
+    }
+
+    /**
+     * Builds one page of the search query for RecipeDao. Every word of the query is matched as a
+     * prefix so "chick bre" finds "Chicken Breast", each in the title or any ingredient. An empty
+     * query returns everything like the old LIKE '%%' did.
+     * @param query
+     * @param after last row of the previous page, or null if it isn't known
+     * @param offset rows skipped when there is no cursor, e.g. (pageNumber - 1) * pageSize
+     * @param pageSize
+     * @return
+     */
+    public static SupportSQLiteQuery searchQuery(String query, @Nullable SearchCursor after,
+            int offset, int pageSize) {
+        StringBuilder sql = new StringBuilder(SUMMARY_SELECT);
+        List<Object> args = new ArrayList<>();
+
+        List<String> terms = toMatchTerms(query);
+        for(String term: terms) {
+            sql.append(args.isEmpty() ? " WHERE " : " AND ").append(TERM_CLAUSE);
+            args.add(term);
+            args.add(term);
+        }
+        if(after != null) {
+            sql.append(args.isEmpty() ? " WHERE " : " AND ").append(AFTER_CLAUSE);
+            args.add(after.getSocialRank());
+            args.add(after.getSocialRank());
+            args.add(after.getRecipeId());
+        }
+        sql.append(ORDER_AND_LIMIT);
+        args.add(pageSize);
+        if(after == null && offset > 0) {
+            sql.append(" OFFSET ?");
+            args.add(offset);
+        }
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Splits the user's query into tokens the same way the FTS "simple" tokenizer does
+     * (anything that isn't a letter or digit is a separator) and turns each into a prefix term.
+     * This also strips out anything that would be parsed as MATCH syntax (quotes, '-', '*', etc.)
+     * @param query
+     * @return one MATCH expression per token, empty if the query has no searchable tokens
+     */
+    static List<String> toMatchTerms(String query) {
+        List<String> tokens = new ArrayList<>();
+        if(query == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        String lower = query.toLowerCase(Locale.US);
+        for(int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if(Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if(token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if(token.length() > 0) {
+            tokens.add(token.toString());
+        }
+
+        List<String> terms = new ArrayList<>(tokens.size());
+        for(String t: tokens) {
+            terms.add(t + '*');
+        }
+        return terms;
+    }
+}
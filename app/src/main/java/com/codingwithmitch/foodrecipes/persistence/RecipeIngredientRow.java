@@ -0,0 +1,44 @@
+package com.codingwithmitch.foodrecipes.persistence;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.arch.persistence.room.Embedded;
+import android.support.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+
+import java.util.List;
+
+/**
+ * One row of the recipe/ingredients join in RecipeDao.getRecipe(). There is one row per ingredient,
+ * all with the same recipe columns. toRecipe() folds them back into a single Recipe.
+ */
+public class RecipeIngredientRow {
+
+    @Embedded
+    public Recipe recipe;
+
+    // null when the recipe has no ingredients stored yet (LEFT JOIN)
+    @ColumnInfo(name = "ingredient")
+    public String ingredient;
+
+    /**
+     * @param rows ordered by ingredient position
+     * @return the recipe with its ingredients, or null if the recipe isn't in the cache. Ingredients
+     * stay null if none are stored, same as a recipe that only came from a search.
+     */
+    @Nullable
+    public static Recipe toRecipe(@Nullable List<RecipeIngredientRow> rows) {
+        if(rows == null || rows.isEmpty()) {
+            return null;
+        }
+        Recipe recipe = rows.get(0).recipe;
+        if(rows.get(0).ingredient != null) {
+            String[] ingredients = new String[rows.size()];
+            for(int i = 0; i < rows.size(); i++) {
+                ingredients[i] = rows.get(i).ingredient;
+            }
+            recipe.setIngredients(ingredients);
+        }
+        return recipe;
+    }
+}
@@ -0,0 +1,57 @@
+package com.codingwithmitch.foodrecipes.persistence;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
+
+import java.util.List;
+
+/**
+ * Position in the search results, used for keyset pagination.
+ *
+ * Search results are ordered by (social_rank DESC, recipe_id DESC). A cursor holds the key of the
+ * last recipe on a page and the next page is everything strictly after it. Unlike
+ * LIMIT (pageNumber * 30) this never re-reads the rows of earlier pages.
+ */
+public class SearchCursor {
+
+    private final float socialRank;
+
+    @NonNull
+    private final String recipeId;
+
+    public SearchCursor(float socialRank, @NonNull String recipeId) {
+        this.socialRank = socialRank;
+        this.recipeId = recipeId;
+    }
+
+    /**
+     * @return cursor pointing after the last recipe of the page, or null if the page is empty
+     */
+    @Nullable
+    public static SearchCursor after(@Nullable List<RecipeSummary> page) {
+        if(page == null || page.isEmpty()) {
+            return null;
+        }
+        RecipeSummary last = page.get(page.size() - 1);
+        return new SearchCursor(last.getSocial_rank(), last.getRecipe_id());
+    }
+
+    public float getSocialRank() {
+        return socialRank;
+    }
+
+    @NonNull
+    public String getRecipeId() {
+        return recipeId;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchCursor{" +
+                "socialRank=" + socialRank +
+                ", recipeId='" + recipeId + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,129 @@
+package com.codingwithmitch.foodrecipes.persistence;
+
+import android.support.annotation.WorkerThread;
+
+import com.codingwithmitch.foodrecipes.PriorityExecutor;
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.util.Priority;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Writes a page of search results while it is still being decoded.
+ *
+ * The caller decodes on its own thread and only full batches of batchSize recipes are handed to the
+ * writer executor (diskIO()), one transaction each. Before a batch is handed over the previous one
+ * has to be written, so at most two batches of Recipe objects are held in memory no matter how big
+ * the page is. Only the ids are kept until finish() saves the order of the page.
+ *
+ * Must not be used on the writer executor itself, it would wait for its own batches.
+ */
+public class SearchPageWriter {
+
+    private final RecipeDao mRecipeDao;
+    private final PriorityExecutor mWriter;
+    private final Priority mPriority;
+    private final String mQuery;
+    private final int mPage;
+    private final int mBatchSize;
+
+    private List<Recipe> mBatch;
+    private final List<String> mRecipeIds = new ArrayList<>();
+
+    // the batch being written
+    private FutureTask<Void> mPending;
+
+    /**
+     * @param writer executor of the db writes, diskIO()
+     * @param priority of the writes
+     * @param query normalized with SearchResult.normalizeQuery()
+     * @param page
+     * @param batchSize recipes per transaction
+     */
+    public SearchPageWriter(RecipeDao recipeDao, PriorityExecutor writer, Priority priority,
+            String query, int page, int batchSize) {
+        mRecipeDao = recipeDao;
+        mWriter = writer;
+        mPriority = priority;
+        mQuery = query;
+        mPage = page;
+        mBatchSize = batchSize;
+        mBatch = new ArrayList<>(batchSize);
+    }
+
+    @WorkerThread
+    public void add(Recipe recipe) throws InterruptedIOException {
+        mBatch.add(recipe);
+        mRecipeIds.add(recipe.getRecipe_id());
+        if(mBatch.size() >= mBatchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the last batch and the order of the page, and waits until they are written.
+     */
+    @WorkerThread
+    public void finish() throws InterruptedIOException {
+        flush();
+        final List<String> recipeIds = new ArrayList<>(mRecipeIds);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                mRecipeDao.saveSearchResultIds(mQuery, mPage, recipeIds);
+            }
+        });
+        awaitPending();
+    }
+
+    /**
+     * @return ids of every recipe added so far, in order
+     */
+    public List<String> getRecipeIds() {
+        return mRecipeIds;
+    }
+
+    private void flush() throws InterruptedIOException {
+        if(mBatch.isEmpty()) {
+            return;
+        }
+        final Recipe[] recipes = mBatch.toArray(new Recipe[mBatch.size()]);
+        mBatch = new ArrayList<>(mBatchSize);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                mRecipeDao.upsertRecipes(recipes);
+            }
+        });
+    }
+
+    private void submit(Runnable write) throws InterruptedIOException {
+        awaitPending();
+        mPending = new FutureTask<>(write, null);
+        mWriter.execute(mPending, mPriority);
+    }
+
+    private void awaitPending() throws InterruptedIOException {
+        if(mPending == null) {
+            return;
+        }
+        try {
+            mPending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing search page " + mPage);
+        } catch (ExecutionException e) {
+            // e.g. an SQLiteException, thrown here as if the write ran on this thread
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            mPending = null;
+        }
+    }
+}
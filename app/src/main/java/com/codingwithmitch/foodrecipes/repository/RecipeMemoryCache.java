@@ -0,0 +1,213 @@
+package com.codingwithmitch.foodrecipes.repository;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.util.CacheStats;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory LRU of recipes in front of Room, so opening a recipe that was just viewed doesn't
+ * query the db again.
+ *
+ * The size is counted in (estimated) bytes, not entries. RecipeRepository keeps it in sync with
+ * its writes: saved recipes are put, recipes updated by a search or evicted from the db are removed.
+ * An InvalidationListener hears about those changes, so a recipe served from here doesn't have to
+ * observe Room until it changed.
+ *
+ * Register it with Context.registerComponentCallbacks() so it shrinks under memory pressure.
+ */
+public class RecipeMemoryCache implements ComponentCallbacks2 {
+    private static final String TAG = "RecipeMemoryCache";
+
+    /**
+     * Gets the cache numbers after every change, e.g. to log or graph them.
+     */
+    public interface MetricsHook {
+        void onMetrics(CacheStats stats, int sizeBytes, int maxSizeBytes);
+    }
+
+    /**
+     * Told when a cached recipe was removed or replaced by a different one. Not when it was only
+     * pushed out by the LRU, the db still has the same recipe then.
+     */
+    public interface InvalidationListener {
+        // on the thread that changed the cache
+        void onInvalidated(String recipeId);
+    }
+
+    private final LruCache<String, Recipe> mCache;
+
+    // the same entries as mCache, for lookups that must not count as a use in the LRU order
+    private final Map<String, Recipe> mEntries = new ConcurrentHashMap<>();
+
+    private final List<InvalidationListener> mInvalidationListeners = new CopyOnWriteArrayList<>();
+
+    private final CacheStats mStats = new CacheStats();
+
+    private volatile MetricsHook mMetricsHook;
+
+    public RecipeMemoryCache(int maxSizeBytes) {
+        mCache = new LruCache<String, Recipe>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(String key, Recipe recipe) {
+                return estimateSize(recipe);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Recipe oldValue,
+                    Recipe newValue) {
+                if(newValue == null) {
+                    // only that recipe, a put() of the same id may have happened in between
+                    mEntries.remove(key, oldValue);
+                }
+            }
+        };
+    }
+
+    public void addInvalidationListener(InvalidationListener listener) {
+        mInvalidationListeners.add(listener);
+    }
+
+    public void removeInvalidationListener(InvalidationListener listener) {
+        mInvalidationListeners.remove(listener);
+    }
+
+    public void setMetricsHook(@Nullable MetricsHook metricsHook) {
+        mMetricsHook = metricsHook;
+    }
+
+    @Nullable
+    public Recipe get(String recipeId) {
+        Recipe recipe = mCache.get(recipeId);
+        if(recipe != null) {
+            mStats.hit();
+        } else {
+            mStats.miss();
+        }
+        reportMetrics();
+        return recipe;
+    }
+
+    /**
+     * Same as get() but isn't counted as a hit or miss and doesn't move the recipe up in the LRU
+     * order, e.g. for a prefetcher checking what it can skip.
+     */
+    @Nullable
+    public Recipe peek(String recipeId) {
+        return mEntries.get(recipeId);
+    }
+
+    public void put(@NonNull Recipe recipe) {
+        Recipe previous;
+        synchronized (this) {
+            // before mCache, a recipe too big for it is removed from both right away
+            mEntries.put(recipe.getRecipe_id(), recipe);
+            previous = mCache.put(recipe.getRecipe_id(), recipe);
+        }
+        if(previous != null && !previous.equals(recipe)) {
+            notifyInvalidated(recipe.getRecipe_id());
+        }
+        reportMetrics();
+    }
+
+    public void remove(Collection<String> recipeIds) {
+        for(String recipeId: recipeIds) {
+            Recipe previous;
+            synchronized (this) {
+                previous = mCache.remove(recipeId);
+            }
+            if(previous != null) {
+                notifyInvalidated(recipeId);
+            }
+        }
+        reportMetrics();
+    }
+
+    public void clear() {
+        mCache.evictAll();
+        reportMetrics();
+    }
+
+    public CacheStats getStats() {
+        return mStats;
+    }
+
+    /**
+     * @return estimated bytes used by the cached recipes
+     */
+    public int getSizeBytes() {
+        return mCache.size();
+    }
+
+    public int getMaxSizeBytes() {
+        return mCache.maxSize();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if(level >= TRIM_MEMORY_MODERATE) {
+            // the app is in the background and likely to be killed, the db still has everything
+            mCache.evictAll();
+        } else if(level >= TRIM_MEMORY_RUNNING_LOW) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+        Log.i(TAG, "onTrimMemory: level " + level + ", size now " + mCache.size() + " bytes");
+        reportMetrics();
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    private void notifyInvalidated(String recipeId) {
+        for(InvalidationListener listener: mInvalidationListeners) {
+            listener.onInvalidated(recipeId);
+        }
+    }
+
+    private void reportMetrics() {
+        MetricsHook metricsHook = mMetricsHook;
+        if(metricsHook != null) {
+            metricsHook.onMetrics(mStats, mCache.size(), mCache.maxSize());
+        }
+    }
+
+    /**
+     * Rough heap size of a recipe: object headers plus 2 bytes per char of every string.
+     */
+    private static int estimateSize(Recipe recipe) {
+        int size = 48;
+        size += estimateSize(recipe.getRecipe_id());
+        size += estimateSize(recipe.getTitle());
+        size += estimateSize(recipe.getPublisher());
+        size += estimateSize(recipe.getImage_url());
+        String[] ingredients = recipe.getIngredients();
+        if(ingredients != null) {
+            size += 16 + 4 * ingredients.length;
+            for(String ingredient: ingredients) {
+                size += estimateSize(ingredient);
+            }
+        }
+        return size;
+    }
+
+    private static int estimateSize(String value) {
+        return value == null ? 0 : 40 + 2 * value.length();
+    }
+}
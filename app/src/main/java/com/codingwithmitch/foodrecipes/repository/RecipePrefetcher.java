@@ -0,0 +1,159 @@
+package com.codingwithmitch.foodrecipes.repository;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Observer;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.util.FetchPolicy;
+import com.codingwithmitch.foodrecipes.util.Priority;
+import com.codingwithmitch.foodrecipes.util.Resource;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the details (ingredients) of the recipes on screen before they are tapped. Search results
+ * never include ingredients, so without this opening a recipe always waits for the network.
+ *
+ * Every prefetch is a normal recipe resource from RecipeRepository.searchRecipeApi() with
+ * BACKGROUND priority, so it only fetches what isn't fresh in the cache and it saves into the db and
+ * the memory cache like opening the recipe does. It must use the same FetchPolicy as the detail
+ * screen: then tapping a recipe that is still being prefetched joins that request (and raises it to
+ * USER_BLOCKING) instead of starting another one.
+ *
+ * At most maxInFlight recipes are loaded at a time, the rest wait in list order. Prefetches of
+ * recipes that are no longer visible are released, which cancels them unless someone else (the
+ * detail screen) still holds the request.
+ * Recipes already fresh in the memory cache are skipped and a recipe is only loaded once. One that
+ * failed (or was cancelled) is tried again the next time it is visible.
+ */
+public class RecipePrefetcher {
+    private static final String TAG = "RecipePrefetcher";
+
+    private final RecipeRepository mRecipeRepository;
+    private final int mMaxInFlight;
+    private final FetchPolicy mFetchPolicy;
+
+    // visible recipes waiting for a free slot, in list order
+    private final Set<String> mPending = new LinkedHashSet<>();
+    private final Map<String, Prefetch> mInFlight = new HashMap<>();
+    // loaded already, not tried again until clear()
+    private final Set<String> mLoaded = new HashSet<>();
+
+    public RecipePrefetcher(RecipeRepository recipeRepository, int maxInFlight,
+            FetchPolicy fetchPolicy) {
+        mRecipeRepository = recipeRepository;
+        mMaxInFlight = maxInFlight;
+        mFetchPolicy = fetchPolicy;
+    }
+
+    /**
+     * Replaces the recipes to prefetch with the ones on screen now.
+     * @param recipeIds in the order they are shown
+     */
+    @MainThread
+    public void setVisibleRecipes(Collection<String> recipeIds) {
+        Set<String> visible = new HashSet<>(recipeIds);
+        Iterator<Map.Entry<String, Prefetch>> iterator = mInFlight.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<String, Prefetch> entry = iterator.next();
+            if(!visible.contains(entry.getKey())) {
+                Log.i(TAG, "setVisibleRecipes: scrolled away, cancelling " + entry.getKey());
+                iterator.remove();
+                entry.getValue().cancel();
+            }
+        }
+
+        mPending.clear();
+        for(String recipeId: recipeIds) {
+            if(!mInFlight.containsKey(recipeId) && !mLoaded.contains(recipeId)
+                    && !mRecipeRepository.isRecipeFresh(recipeId)) {
+                mPending.add(recipeId);
+            }
+        }
+        startPending();
+    }
+
+    /**
+     * Cancels everything, e.g. when the list is gone.
+     */
+    @MainThread
+    public void clear() {
+        for(Prefetch prefetch: mInFlight.values()) {
+            prefetch.cancel();
+        }
+        mInFlight.clear();
+        mPending.clear();
+        mLoaded.clear();
+    }
+
+    /**
+     * @return number of recipes being loaded right now
+     */
+    public int getInFlightCount() {
+        return mInFlight.size();
+    }
+
+    private void startPending() {
+        Iterator<String> iterator = mPending.iterator();
+        while(mInFlight.size() < mMaxInFlight && iterator.hasNext()) {
+            String recipeId = iterator.next();
+            iterator.remove();
+            Prefetch prefetch = new Prefetch(recipeId);
+            mInFlight.put(recipeId, prefetch);
+            prefetch.start();
+            // a cached recipe can finish right away and start the next one, which changes mPending
+            iterator = mPending.iterator();
+        }
+    }
+
+    private void onFinished(Prefetch prefetch, boolean loaded) {
+        if(mInFlight.get(prefetch.mRecipeId) != prefetch) {
+            return;
+        }
+        mInFlight.remove(prefetch.mRecipeId);
+        if(loaded) {
+            mLoaded.add(prefetch.mRecipeId);
+        }
+        startPending();
+    }
+
+    private class Prefetch implements Observer<Resource<Recipe>> {
+        final String mRecipeId;
+        private LiveData<Resource<Recipe>> mSource;
+
+        Prefetch(String recipeId) {
+            mRecipeId = recipeId;
+        }
+
+        void start() {
+            mSource = mRecipeRepository.searchRecipeApi(mRecipeId, mFetchPolicy, Priority.BACKGROUND);
+            mSource.observeForever(this);
+        }
+
+        @Override
+        public void onChanged(@Nullable Resource<Recipe> resource) {
+            if(resource == null || resource.status == Resource.Status.LOADING
+                    || (resource.status == Resource.Status.SUCCESS && resource.stale)) {
+                return;
+            }
+            mSource.removeObserver(this);
+            mRecipeRepository.releaseRecipe(mSource);
+            onFinished(this, resource.status == Resource.Status.SUCCESS);
+        }
+
+        void cancel() {
+            mSource.removeObserver(this);
+            // a tapped recipe is held by its screen too, that request has to go on
+            mRecipeRepository.releaseRecipe(mSource);
+        }
+    }
+}
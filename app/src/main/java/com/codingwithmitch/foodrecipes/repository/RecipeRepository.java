@@ -1,25 +1,49 @@
 package com.codingwithmitch.foodrecipes.repository;
 
+import android.arch.core.util.Function;
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.arch.lifecycle.Observer;
+import android.arch.lifecycle.Transformations;
 import android.content.Context;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.PriorityExecutor;
 import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.models.RecipeAccess;
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
+import com.codingwithmitch.foodrecipes.models.SearchPage;
+import com.codingwithmitch.foodrecipes.models.SearchResult;
+import com.codingwithmitch.foodrecipes.persistence.RecipeCacheEvictor;
 import com.codingwithmitch.foodrecipes.persistence.RecipeDao;
 import com.codingwithmitch.foodrecipes.persistence.RecipeDatabase;
+import com.codingwithmitch.foodrecipes.persistence.SearchCursor;
+import com.codingwithmitch.foodrecipes.persistence.SearchPageWriter;
+import com.codingwithmitch.foodrecipes.requests.RecipeSearchStream;
 import com.codingwithmitch.foodrecipes.requests.ServiceGenerator;
 import com.codingwithmitch.foodrecipes.requests.responses.APIResponse;
 import com.codingwithmitch.foodrecipes.requests.responses.RecipeResponse;
 import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
+import com.codingwithmitch.foodrecipes.util.CacheStats;
 import com.codingwithmitch.foodrecipes.util.Constants;
+import com.codingwithmitch.foodrecipes.util.FetchPolicy;
+import com.codingwithmitch.foodrecipes.util.InFlightRegistry;
+import com.codingwithmitch.foodrecipes.util.Priority;
 import com.codingwithmitch.foodrecipes.util.NetworkBoundResource;
 import com.codingwithmitch.foodrecipes.util.Resource;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import okhttp3.ResponseBody;
+
 public class RecipeRepository {
     private static final String TAG = "RecipeRepository";
 
@@ -27,6 +51,24 @@ public class RecipeRepository {
 
     private RecipeDao mRecipeDao;
 
+    private RecipeCacheEvictor mCacheEvictor;
+
+    // Recipes recently loaded or saved, checked before going to the db
+    private RecipeMemoryCache mMemoryCache;
+
+    // How long a cached search page is used before it's fetched again (in **SECONDS**)
+    private int mSearchRefreshTime = Constants.SEARCH_REFRESH_TIME;
+
+    // Decode search responses straight into the db (see setStreamSearchResults())
+    private boolean mStreamSearchResults;
+
+    // hit = search page served from the cache without going to the network
+    private final CacheStats mSearchCacheStats = new CacheStats();
+
+    // Requests that are still loading, so the same request isn't made twice at the same time
+    private final InFlightRegistry<List<RecipeSummary>> mSearchesInFlight = new InFlightRegistry<>();
+    private final InFlightRegistry<Recipe> mRecipesInFlight = new InFlightRegistry<>();
+
     public static RecipeRepository getInstance(Context context) {
         if(instance == null) {
             instance = new RecipeRepository(context);
@@ -35,7 +77,70 @@ public class RecipeRepository {
     }
 
     private RecipeRepository(Context context) {
-        mRecipeDao = RecipeDatabase.getInstance(context).getRecipeDao();
+        RecipeDatabase database = RecipeDatabase.getInstance(context);
+        mRecipeDao = database.getRecipeDao();
+        mCacheEvictor = new RecipeCacheEvictor(database, AppExecutors.getInstance(),
+                Constants.CACHE_MAX_RECIPES, Constants.CACHE_MAX_BYTES, Constants.CACHE_TIME_TO_LIVE);
+        mMemoryCache = new RecipeMemoryCache(Constants.MEMORY_CACHE_MAX_BYTES);
+        context.getApplicationContext().registerComponentCallbacks(mMemoryCache);
+        mCacheEvictor.setEvictionListener(new RecipeCacheEvictor.EvictionListener() {
+            @Override
+            public void onEvicted(List<String> recipeIds) {
+                mMemoryCache.remove(recipeIds);
+            }
+        });
+        mCacheEvictor.scheduleCompaction();
+    }
+
+    /**
+     * Recipes that are on screen. They won't be evicted from the cache until unpinRecipes().
+     * @param recipeIds
+     */
+    public void pinRecipes(Collection<String> recipeIds) {
+        mCacheEvictor.pin(recipeIds);
+    }
+
+    public void unpinRecipes(Collection<String> recipeIds) {
+        mCacheEvictor.unpin(recipeIds);
+    }
+
+    public RecipeCacheEvictor getCacheEvictor() {
+        return mCacheEvictor;
+    }
+
+    /**
+     * Hit rate and size of the in-memory recipe cache can be read or hooked from here.
+     */
+    public RecipeMemoryCache getMemoryCache() {
+        return mMemoryCache;
+    }
+
+    /**
+     * @return true if the full recipe is in the memory cache and was refreshed less than
+     * RECIPE_REFRESH_TIME ago. False doesn't mean it isn't in the db.
+     */
+    public boolean isRecipeFresh(String recipeId) {
+        Recipe recipe = mMemoryCache.peek(recipeId);
+        return recipe != null && recipe.getIngredients() != null
+                && (int) (System.currentTimeMillis() / 1000) - recipe.getTimestamp()
+                < Constants.RECIPE_REFRESH_TIME;
+    }
+
+    public void setSearchRefreshTime(int seconds) {
+        mSearchRefreshTime = seconds;
+    }
+
+    public CacheStats getSearchCacheStats() {
+        return mSearchCacheStats;
+    }
+
+    /**
+     * When true, search responses are decoded while they download and written to the db in
+     * batches, instead of being decoded into a RecipeSearchResponse first. Uses less memory for
+     * big pages.
+     */
+    public void setStreamSearchResults(boolean streamSearchResults) {
+        mStreamSearchResults = streamSearchResults;
     }
 
     /**
@@ -44,13 +149,60 @@ public class RecipeRepository {
      *
      * We've utilized alot of the generic classes and wrappers to boil the decision for network/cache calls
      * down to only this. This is a good idea.
+     *
+     * The network is still paged by pageNumber but the cache is paged by cursor: only the pageSize
+     * recipes after {@code after} are loaded, so each page only reads its own rows. Results are
+     * RecipeSummary's, the ingredients are only loaded by searchRecipeApi().
+     *
+     * Pages that were fetched before are served from search_results in the order the API returned
+     * them. The cursor is only used for pages that were never fetched and only if the page before
+     * wasn't either (a fetched page is in the API's order, not the cache's). Otherwise they are
+     * found by pageNumber (never page 1 again for a page further down). Pages fetched less than
+     * mSearchRefreshTime ago don't go to the network at all.
+     *
+     * If the same page is already being loaded (e.g. the scroll listener and a rotation both asked
+     * for it) the LiveData of that request is returned instead of making a new one.
      * @param query
-     * @param pageNumber
+     * @param pageNumber page requested from the API
+     * @param after last recipe of the previous page, null for the first page or if it isn't known
+     *              yet
+     * @param pageSize number of recipes read from the cache
+     * @param fetchPolicy how the cache and the network are combined
+     * @param priority of the network call and the db write, e.g. BACKGROUND for a prefetch
      * @return
      */
-    public LiveData<Resource<List<Recipe>>> searchRecipesApi(final String query, final int pageNumber) {
+    public LiveData<Resource<List<RecipeSummary>>> searchRecipesApi(final String query, final int pageNumber,
+            @Nullable final SearchCursor after, final int pageSize, final FetchPolicy fetchPolicy,
+            final Priority priority) {
+        String key = SearchResult.normalizeQuery(query) + "|" + pageNumber + "|" + after + "|"
+                + pageSize + "|" + fetchPolicy;
+        return mSearchesInFlight.get(key, priority, new InFlightRegistry.Factory<List<RecipeSummary>>() {
+            @NonNull
+            @Override
+            public LiveData<Resource<List<RecipeSummary>>> create() {
+                return createSearchRecipesResource(query, pageNumber, after, pageSize, fetchPolicy,
+                        priority);
+            }
+        });
+    }
+
+    private LiveData<Resource<List<RecipeSummary>>> createSearchRecipesResource(final String query,
+            final int pageNumber, @Nullable final SearchCursor after, final int pageSize,
+            FetchPolicy fetchPolicy, Priority priority) {
         Log.i(TAG, "REPO SEARCH");
-        return new NetworkBoundResource<List<Recipe>, RecipeSearchResponse>(AppExecutors.getInstance()){
+        final String normalizedQuery = SearchResult.normalizeQuery(query);
+        final SearchPageSource pageSource = new SearchPageSource(normalizedQuery, pageNumber, after,
+                pageSize);
+        if(mStreamSearchResults) {
+            return createStreamingSearchRecipesResource(query, pageSource, fetchPolicy, priority);
+        }
+        return new NetworkBoundResource<List<RecipeSummary>, RecipeSearchResponse>(AppExecutors.getInstance(),
+                fetchPolicy, priority){
+
+            @Override
+            protected String getResourceType() {
+                return "search";
+            }
 
             /**
              * Here we save the data from Retrofit into the cache
@@ -60,49 +212,35 @@ public class RecipeRepository {
             protected void saveCallResult(@NonNull RecipeSearchResponse item) {
                 Log.i(TAG, "saveCallResult");
                 if(item.getRecipes() != null) { //recipe list can be null if API_KEY expires etc.
+                    /**
+                     * if the recipe already exists... I don't want to set the ingredients or timestamp
+                     * b/c they will be erased. upsertRecipes() only updates the search fields of those.
+                     *
+                     * The whole page is written in one transaction so observers are only invalidated once.
+                     * The order of the page is saved too so loadFromDb() returns it the same way.
+                     */
                     Recipe[] recipes = new Recipe[item.getRecipes().size()];
-                    int index = 0;
-                    for(long rowid: mRecipeDao.insertRecipes((Recipe[]) (item.getRecipes().toArray(recipes)))) {
-                        if(rowid == -1) {
-                            /**
-                             * if the recipe already exists... I don't want to set the ingredients or timestamp
-                             * b/c they will be erased. This is why we built to different methods and are looping
-                             * through each recipe.
-                             *
-                             * In this case if the recipe already exists just update the entry with update();
-                             */
-                            Log.i(TAG, "saveCallResult: CONFLICT - Recipe is already in the cache");
-                            mRecipeDao.updateRecipe(recipes[index].getRecipe_id(),
-                                    recipes[index].getTitle(),
-                                    recipes[index].getPublisher(),
-                                    recipes[index].getImage_url(),
-                                    recipes[index].getSocial_rank());
-                        }
-                        index++;
+                    mRecipeDao.saveSearchResults(normalizedQuery, pageNumber,
+                            item.getRecipes().toArray(recipes));
+                    // the search fields of these changed in the db, reload them from there next time
+                    List<String> recipeIds = new ArrayList<>(recipes.length);
+                    for(Recipe recipe: recipes) {
+                        recipeIds.add(recipe.getRecipe_id());
                     }
+                    mMemoryCache.remove(recipeIds);
+                    mCacheEvictor.onRecipesWritten(recipes.length);
                 }
             }
 
-            /**
-             * Deciding via timestamp if to refresh the cache.
-             * Since we're returning true we always refresh the cache. Easier to do that.
-             * @param data
-             * @return
-             */
             @Override
-            protected boolean shouldFetch(@Nullable List<Recipe> data) {
-                return true;
+            protected boolean shouldFetch(@Nullable List<RecipeSummary> data) {
+                return pageSource.shouldFetch();
             }
 
-            /**
-             * Responsible for retrieving data from the local cache
-             * @return
-             */
             @NonNull
             @Override
-            protected LiveData<List<Recipe>> loadFromDb() {
-                Log.i(TAG, "loadFromDb");
-                return mRecipeDao.searchRecipes(query, pageNumber);
+            protected LiveData<List<RecipeSummary>> loadFromDb() {
+                return pageSource.load();
             }
 
             /**
@@ -120,19 +258,239 @@ public class RecipeRepository {
         }.getAsLiveData();
     }
 
-    public LiveData<Resource<Recipe>> searchRecipeApi(final String recipeId) {
-        return new NetworkBoundResource<Recipe, RecipeResponse>(AppExecutors.getInstance()) {
+    /**
+     * Same as the search resource above, but the response is never decoded into a
+     * RecipeSearchResponse. saveCallResult() reads the body with RecipeSearchStream and writes the
+     * recipes in batches with SearchPageWriter while they are decoded.
+     */
+    private LiveData<Resource<List<RecipeSummary>>> createStreamingSearchRecipesResource(
+            final String query, final SearchPageSource pageSource, FetchPolicy fetchPolicy,
+            final Priority priority) {
+        return new NetworkBoundResource<List<RecipeSummary>, ResponseBody>(AppExecutors.getInstance(),
+                fetchPolicy, priority){
+
+            @Override
+            protected String getResourceType() {
+                return "search_stream";
+            }
+
+            /**
+             * Reads and decodes on networkIO(), only the batches of SearchPageWriter go to diskIO().
+             */
+            @Override
+            protected PriorityExecutor getSaveExecutor() {
+                return AppExecutors.getInstance().networkIO();
+            }
+
+            @Override
+            protected void saveCallResult(@NonNull ResponseBody item) throws IOException {
+                Log.i(TAG, "saveCallResult: streaming");
+                final SearchPageWriter writer = new SearchPageWriter(mRecipeDao,
+                        AppExecutors.getInstance().diskIO(), priority, pageSource.mQuery,
+                        pageSource.mPageNumber, Constants.STREAM_WRITE_BATCH_SIZE);
+                try {
+                    RecipeSearchStream.Result result = RecipeSearchStream.read(item.charStream(),
+                            new RecipeSearchStream.RecipeSink() {
+                                @Override
+                                public void accept(Recipe recipe) throws IOException {
+                                    writer.add(recipe);
+                                }
+                            });
+                    if(result.getError() != null) {
+                        // e.g. the API key expired. The page isn't recorded, it's fetched again next time.
+                        throw new IOException("search failed: " + result.getError());
+                    }
+                    writer.finish();
+                } catch (IllegalStateException e) {
+                    // malformed JSON. The recipes written so far are kept, the page is fetched again next time.
+                    throw new IOException("couldn't read the search response", e);
+                } finally {
+                    item.close();
+                    mMemoryCache.remove(writer.getRecipeIds());
+                    mCacheEvictor.onRecipesWritten(writer.getRecipeIds().size());
+                }
+            }
+
+            @Override
+            protected boolean shouldFetch(@Nullable List<RecipeSummary> data) {
+                return pageSource.shouldFetch();
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<List<RecipeSummary>> loadFromDb() {
+                return pageSource.load();
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<APIResponse<ResponseBody>> createCall() {
+                Log.i(TAG, "createCall: streaming");
+                return ServiceGenerator.getRecipeApi().searchRecipeStream(Constants.API_KEY,
+                        query, String.valueOf(pageSource.mPageNumber));
+            }
+        }.getAsLiveData();
+    }
+
+    /**
+     * The cache side of a search page, shared by both kinds of search resources.
+     */
+    private class SearchPageSource {
+
+        private final String mQuery;
+        private final int mPageNumber;
+        private final SearchCursor mAfter;
+        private final int mPageSize;
+
+        // Set by load() before the page data is emitted, so shouldFetch() can use it
+        private SearchPage mSearchPage;
+
+        SearchPageSource(String normalizedQuery, int pageNumber, @Nullable SearchCursor after,
+                int pageSize) {
+            mQuery = normalizedQuery;
+            mPageNumber = pageNumber;
+            mAfter = after;
+            mPageSize = pageSize;
+        }
+
+        /**
+         * Deciding via timestamp if to refresh the cache.
+         * Only fetch pages that were never fetched or were fetched more than mSearchRefreshTime ago.
+         * @return
+         */
+        boolean shouldFetch() {
+            if(mSearchPage != null && mSearchPage.isFresh(mSearchRefreshTime)) {
+                Log.i(TAG, "shouldFetch: cached page is fresh: " + mSearchPage);
+                mSearchCacheStats.hit();
+                return false;
+            }
+            mSearchCacheStats.miss();
+            return true;
+        }
+
+        /**
+         * Responsible for retrieving data from the local cache
+         * @return
+         */
+        LiveData<List<RecipeSummary>> load() {
+            Log.i(TAG, "loadFromDb");
+            final LiveData<List<RecipeSummary>> cached =
+                    mRecipeDao.getSearchResults(mQuery, mPageNumber);
+            final LiveData<List<RecipeSummary>> afterCursor = mAfter != null
+                    ? mRecipeDao.searchRecipes(mQuery, mPageNumber, mAfter, mPageSize) : null;
+            final LiveData<List<RecipeSummary>> byPageNumber =
+                    mRecipeDao.searchRecipes(mQuery, mPageNumber, null, mPageSize);
+            // a page the API returned empty is the end of the results. It's recorded in search_pages
+            // like any other fetched page, so it stays empty instead of falling back to the cache
+            // search below (which would show recipes there and the end would never be found).
+            final MutableLiveData<List<RecipeSummary>> empty = new MutableLiveData<>();
+            empty.setValue(new ArrayList<RecipeSummary>());
+            // If the page was fetched before it comes from search_results: same recipes, same
+            // order as the API returned. Otherwise (e.g. offline, query never searched) fall back
+            // to searching everything in the cache.
+            // The cursor is only good for that if the previous page was never fetched either: then
+            // it came from this same search and ordering. A fetched page is in the API's order, the
+            // keyset after its last recipe would skip and repeat recipes, so it goes by page number.
+            // switchMap keeps the current source if the same LiveData is returned again.
+            return Transformations.switchMap(
+                    mRecipeDao.getSearchPages(mQuery, mPageNumber - 1, mPageNumber),
+                    new Function<List<SearchPage>, LiveData<List<RecipeSummary>>>() {
+                        @Override
+                        public LiveData<List<RecipeSummary>> apply(List<SearchPage> searchPages) {
+                            SearchPage searchPage = null;
+                            boolean previousFetched = false;
+                            for(SearchPage page: searchPages) {
+                                if(page.getPage() == mPageNumber) {
+                                    searchPage = page;
+                                } else {
+                                    previousFetched = true;
+                                }
+                            }
+                            mSearchPage = searchPage;
+                            if(searchPage != null) {
+                                return searchPage.getResult_count() == 0 ? empty : cached;
+                            }
+                            return afterCursor != null && !previousFetched ? afterCursor : byPageNumber;
+                        }
+                    });
+        }
+    }
+
+    public LiveData<Resource<List<RecipeSummary>>> searchRecipesApi(String query, int pageNumber,
+            @Nullable SearchCursor after, int pageSize, FetchPolicy fetchPolicy) {
+        return searchRecipesApi(query, pageNumber, after, pageSize, fetchPolicy,
+                Priority.USER_VISIBLE);
+    }
+
+    public LiveData<Resource<List<RecipeSummary>>> searchRecipesApi(String query, int pageNumber,
+            @Nullable SearchCursor after, int pageSize) {
+        return searchRecipesApi(query, pageNumber, after, pageSize, FetchPolicy.CACHE_FIRST);
+    }
+
+    public LiveData<Resource<Recipe>> searchRecipeApi(String recipeId) {
+        return searchRecipeApi(recipeId, FetchPolicy.CACHE_FIRST);
+    }
+
+    /**
+     * Opening a recipe is USER_BLOCKING, the user is looking at an empty screen until it's loaded.
+     */
+    public LiveData<Resource<Recipe>> searchRecipeApi(String recipeId, FetchPolicy fetchPolicy) {
+        return searchRecipeApi(recipeId, fetchPolicy, Priority.USER_BLOCKING);
+    }
+
+    /**
+     * Shares the request with any request for the same recipe that is still loading
+     * (e.g. RecipeActivity being recreated on rotation).
+     * @param recipeId
+     * @param fetchPolicy how the cache and the network are combined
+     * @param priority of the network call and the db write
+     * @return
+     */
+    public LiveData<Resource<Recipe>> searchRecipeApi(final String recipeId, final FetchPolicy fetchPolicy,
+            final Priority priority) {
+        return mRecipesInFlight.get(recipeId + "|" + fetchPolicy, priority, new InFlightRegistry.Factory<Recipe>() {
+            @NonNull
+            @Override
+            public LiveData<Resource<Recipe>> create() {
+                return createRecipeResource(recipeId, fetchPolicy, priority);
+            }
+        });
+    }
+
+    /**
+     * The caller of searchRecipeApi() doesn't need the recipe anymore. The request is cancelled once
+     * nobody else that asked for it still needs it.
+     */
+    public void releaseRecipe(LiveData<Resource<Recipe>> recipe) {
+        mRecipesInFlight.release(recipe);
+    }
+
+    private LiveData<Resource<Recipe>> createRecipeResource(final String recipeId, FetchPolicy fetchPolicy,
+            Priority priority) {
+        return new NetworkBoundResource<Recipe, RecipeResponse>(AppExecutors.getInstance(), fetchPolicy,
+                priority) {
+
+            @Override
+            protected String getResourceType() {
+                return "recipe";
+            }
 
             @Override
             protected void saveCallResult(@NonNull RecipeResponse item) {
                 if(item.getRecipe() != null) {
                     item.getRecipe().setTimestamp((int) (System.currentTimeMillis()/1000));
                     mRecipeDao.insertRecipe(item.getRecipe());
+                    mMemoryCache.put(item.getRecipe());
+                    mCacheEvictor.onRecipesWritten(1);
                 }
             }
 
             @Override
             protected boolean shouldFetch(@Nullable Recipe data) {
+                if(data == null) {
+                    Log.i(TAG, "shouldFetch: recipe isn't cached");
+                    return true;
+                }
                 Log.i(TAG, "shouldFetch: recipe: "+data.toString());
                 int currentTime = (int)(System.currentTimeMillis()/1000);
                 Log.i(TAG, "shouldFetch: current time: "+currentTime);
@@ -147,10 +505,33 @@ public class RecipeRepository {
                 return false;
             }
 
+            /**
+             * Recipes that only came from a search have no ingredients yet, they aren't worth showing
+             * as stale.
+             * @param data
+             * @return
+             */
+            @Override
+            protected boolean isEmpty(@Nullable Recipe data) {
+                return data == null || data.getIngredients() == null;
+            }
+
             @NonNull
             @Override
             protected LiveData<Recipe> loadFromDb() {
-                return mRecipeDao.getRecipe(recipeId);
+                // opening a recipe counts as an access for the cache eviction, nobody waits for it
+                AppExecutors.getInstance().diskIO().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        mRecipeDao.touchRecipes(new RecipeAccess(recipeId,
+                                (int) (System.currentTimeMillis() / 1000)));
+                    }
+                }, Priority.BACKGROUND);
+                Recipe cached = mMemoryCache.get(recipeId);
+                if(cached == null) {
+                    return loadRecipeFromDb(recipeId);
+                }
+                return new CachedRecipeLiveData(recipeId, cached);
             }
 
             @NonNull
@@ -161,4 +542,85 @@ public class RecipeRepository {
         }.getAsLiveData();
     }
 
+    /**
+     * Observes the recipe in the db. Full recipes it loads are put into the memory cache, the ones a
+     * search saved still need the network.
+     */
+    private LiveData<Recipe> loadRecipeFromDb(String recipeId) {
+        return Transformations.map(mRecipeDao.getRecipe(recipeId), new Function<Recipe, Recipe>() {
+            @Override
+            public Recipe apply(Recipe recipe) {
+                if(recipe != null && recipe.getIngredients() != null) {
+                    mMemoryCache.put(recipe);
+                }
+                return recipe;
+            }
+        });
+    }
+
+    /**
+     * A recipe served from the memory cache. Room isn't queried for it until the cached recipe is
+     * invalidated (a refresh, a search that updated it, an eviction from the db), from then on the
+     * db is observed so the change reaches the screen.
+     */
+    private class CachedRecipeLiveData extends MediatorLiveData<Recipe>
+            implements RecipeMemoryCache.InvalidationListener {
+
+        private final String mRecipeId;
+        private boolean mObservingDb;
+
+        CachedRecipeLiveData(String recipeId, Recipe cached) {
+            mRecipeId = recipeId;
+            setValue(cached);
+        }
+
+        @Override
+        protected void onActive() {
+            super.onActive();
+            if(mObservingDb) {
+                return;
+            }
+            mMemoryCache.addInvalidationListener(this);
+            // it may have changed while nobody was observing
+            Recipe cached = mMemoryCache.peek(mRecipeId);
+            if(cached == null || !cached.equals(getValue())) {
+                observeDb();
+            }
+        }
+
+        @Override
+        protected void onInactive() {
+            super.onInactive();
+            mMemoryCache.removeInvalidationListener(this);
+        }
+
+        @Override
+        public void onInvalidated(String recipeId) {
+            if(!mRecipeId.equals(recipeId)) {
+                return;
+            }
+            AppExecutors.getInstance().mainThread().execute(new Runnable() {
+                @Override
+                public void run() {
+                    observeDb();
+                }
+            });
+        }
+
+        @MainThread
+        private void observeDb() {
+            if(mObservingDb) {
+                return;
+            }
+            mObservingDb = true;
+            mMemoryCache.removeInvalidationListener(this);
+            addSource(loadRecipeFromDb(mRecipeId), new Observer<Recipe>() {
+                @Override
+                public void onChanged(@Nullable Recipe recipe) {
+                    setValue(recipe);
+                }
+            });
+        }
+    }
+
 }
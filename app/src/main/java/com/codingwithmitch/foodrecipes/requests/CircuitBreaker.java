@@ -0,0 +1,141 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops sending requests to the backend after it failed too many times in a row.
+ *
+ * CLOSED: requests go through. failureThreshold consecutive failures open the circuit.
+ * OPEN: requests fail right away (see CircuitBreakerInterceptor) until openTime has passed.
+ * HALF_OPEN: one probe request is let through. If it succeeds the circuit closes, otherwise it opens
+ * again for another openTime.
+ *
+ * The state can be observed with getState(), the counters are for logging/metrics.
+ */
+public class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final int mFailureThreshold;
+    private final long mOpenTimeMs;
+
+    private State mState = State.CLOSED;
+    private int mConsecutiveFailures;
+    private long mOpenedAt;
+    private boolean mProbeInFlight;
+
+    private final MutableLiveData<State> mStateLiveData = new MutableLiveData<>();
+
+    private final AtomicLong mSuccesses = new AtomicLong();
+    private final AtomicLong mFailures = new AtomicLong();
+    private final AtomicLong mRejected = new AtomicLong();
+
+    /**
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openTime how long the circuit stays open before a probe is let through (in **SECONDS**)
+     */
+    public CircuitBreaker(int failureThreshold, int openTime) {
+        mFailureThreshold = failureThreshold;
+        mOpenTimeMs = openTime * 1000L;
+        mStateLiveData.postValue(mState);
+    }
+
+    /**
+     * @return true if a request may be sent now. Every allowed request has to be followed by
+     * onSuccess() or onFailure().
+     */
+    public synchronized boolean allowRequest() {
+        if(mState == State.OPEN && now() - mOpenedAt >= mOpenTimeMs) {
+            setState(State.HALF_OPEN);
+        }
+        boolean allowed;
+        if(mState == State.CLOSED) {
+            allowed = true;
+        } else if(mState == State.HALF_OPEN && !mProbeInFlight) {
+            mProbeInFlight = true;
+            allowed = true;
+        } else {
+            allowed = false;
+        }
+        if(!allowed) {
+            mRejected.incrementAndGet();
+        }
+        return allowed;
+    }
+
+    public synchronized void onSuccess() {
+        mSuccesses.incrementAndGet();
+        mConsecutiveFailures = 0;
+        mProbeInFlight = false;
+        if(mState != State.CLOSED) {
+            setState(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        mFailures.incrementAndGet();
+        mConsecutiveFailures++;
+        mProbeInFlight = false;
+        if(mState == State.HALF_OPEN
+                || (mState == State.CLOSED && mConsecutiveFailures >= mFailureThreshold)) {
+            mOpenedAt = now();
+            setState(State.OPEN);
+        }
+    }
+
+    /**
+     * For requests that were allowed but never finished (e.g. cancelled). They count as neither.
+     */
+    public synchronized void onIgnored() {
+        mProbeInFlight = false;
+    }
+
+    public synchronized State getCurrentState() {
+        return mState;
+    }
+
+    public LiveData<State> getState() {
+        return mStateLiveData;
+    }
+
+    public long getSuccessCount() {
+        return mSuccesses.get();
+    }
+
+    public long getFailureCount() {
+        return mFailures.get();
+    }
+
+    /**
+     * @return number of requests that failed fast because the circuit was open
+     */
+    public long getRejectedCount() {
+        return mRejected.get();
+    }
+
+    protected long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    private void setState(State state) {
+        Log.i(TAG, "setState: " + mState + " -> " + state);
+        mState = state;
+        mStateLiveData.postValue(state);
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" +
+                "state=" + getCurrentState() +
+                ", successes=" + getSuccessCount() +
+                ", failures=" + getFailureCount() +
+                ", rejected=" + getRejectedCount() +
+                '}';
+    }
+}
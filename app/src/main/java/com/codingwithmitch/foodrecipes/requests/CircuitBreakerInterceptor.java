@@ -0,0 +1,52 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Puts a CircuitBreaker in front of every request. While the circuit is open requests fail right away
+ * with a CircuitOpenException instead of waiting for a timeout. The failure reaches
+ * NetworkBoundResource as an ApiErrorResponse, so it shows what is in the cache.
+ *
+ * Add it before RetryInterceptor: a request and all of its retries count as one result.
+ */
+public class CircuitBreakerInterceptor implements Interceptor {
+
+    private final CircuitBreaker mCircuitBreaker;
+
+    public CircuitBreakerInterceptor(CircuitBreaker circuitBreaker) {
+        mCircuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if(!mCircuitBreaker.allowRequest()) {
+            throw new CircuitOpenException();
+        }
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            if(chain.call().isCanceled()) {
+                mCircuitBreaker.onIgnored();
+            } else {
+                mCircuitBreaker.onFailure();
+            }
+            throw e;
+        }
+        if(RetryInterceptor.isServerFailure(response.code())) {
+            mCircuitBreaker.onFailure();
+        } else {
+            mCircuitBreaker.onSuccess();
+        }
+        return response;
+    }
+
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException() {
+            super("Server unavailable, showing saved recipes");
+        }
+    }
+}
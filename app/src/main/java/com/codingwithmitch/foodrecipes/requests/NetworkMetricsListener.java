@@ -0,0 +1,174 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import com.codingwithmitch.foodrecipes.metrics.AppMetrics;
+import com.codingwithmitch.foodrecipes.metrics.Metrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Records where the time of every call goes, to AppMetrics.get(), tagged with the endpoint
+ * ("endpoint=/api/search"):
+ *
+ * net.dns_ns, net.connect_ns (TCP + TLS), net.tls_ns: only for calls that opened a new connection
+ * net.request_ns: sending the request
+ * net.ttfb_ns: from the request being sent (requestHeadersEnd/requestBodyEnd) until the response
+ * headers were read
+ * net.body_ns: reading the response body
+ * net.call_ns: the whole call, including retries of the interceptors
+ * net.bytes_out, net.bytes_in: request/response body sizes
+ * net.connection_reused: 1 if a pooled connection was used, 0 if a new one was opened. The mean of
+ * this is the reuse rate of the connection pool.
+ *
+ * One listener is created per call by FACTORY.
+ */
+public class NetworkMetricsListener extends EventListener {
+
+    public static final EventListener.Factory FACTORY = new EventListener.Factory() {
+        @Override
+        public EventListener create(Call call) {
+            return new NetworkMetricsListener(AppMetrics.get(), call.request().url().encodedPath());
+        }
+    };
+
+    private static final AtomicLong sConnectionsAcquired = new AtomicLong();
+    private static final AtomicLong sConnectionsReused = new AtomicLong();
+
+    private final Metrics mMetrics;
+    private final String mEndpointTag;
+
+    private long mCallStart;
+    private long mDnsStart;
+    private long mConnectStart;
+    private long mTlsStart;
+    private long mRequestStart;
+    private long mRequestEnd;
+    private long mBodyStart;
+    private boolean mConnected;
+
+    NetworkMetricsListener(Metrics metrics, String endpoint) {
+        mMetrics = metrics;
+        mEndpointTag = "endpoint=" + endpoint;
+    }
+
+    /**
+     * @return share of the calls since the app started that used a pooled connection
+     */
+    public static double getConnectionReuseRate() {
+        long acquired = sConnectionsAcquired.get();
+        return acquired == 0 ? 0 : (double) sConnectionsReused.get() / acquired;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        mCallStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        mDnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        record("net.dns_ns", System.nanoTime() - mDnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        mConnectStart = System.nanoTime();
+        mConnected = true;
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        mTlsStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        record("net.tls_ns", System.nanoTime() - mTlsStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+            Protocol protocol) {
+        record("net.connect_ns", System.nanoTime() - mConnectStart);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        // connectStart() only happens before this if a new connection had to be opened
+        sConnectionsAcquired.incrementAndGet();
+        if(!mConnected) {
+            sConnectionsReused.incrementAndGet();
+        }
+        record("net.connection_reused", mConnected ? 0 : 1);
+        mConnected = false;
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        mRequestStart = System.nanoTime();
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        mRequestEnd = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        mRequestEnd = System.nanoTime();
+        record("net.bytes_out", byteCount);
+    }
+
+    /**
+     * OkHttp calls responseHeadersStart() before it starts waiting for the server, so the wait is
+     * only over once the headers were read.
+     */
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        long now = System.nanoTime();
+        record("net.request_ns", mRequestEnd - mRequestStart);
+        record("net.ttfb_ns", now - mRequestEnd);
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        mBodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        record("net.body_ns", System.nanoTime() - mBodyStart);
+        record("net.bytes_in", byteCount);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        record("net.call_ns", System.nanoTime() - mCallStart);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        mMetrics.record("net.call_failed_ns", System.nanoTime() - mCallStart, mEndpointTag,
+                "error=" + ioe.getClass().getSimpleName());
+    }
+
+    private void record(String name, long value) {
+        mMetrics.record(name, value, mEndpointTag);
+    }
+}
@@ -6,9 +6,11 @@ import com.codingwithmitch.foodrecipes.requests.responses.APIResponse;
 import com.codingwithmitch.foodrecipes.requests.responses.RecipeResponse;
 import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 public interface RecipeApi {
 
@@ -20,6 +22,15 @@ public interface RecipeApi {
             @Query("page") String page
     );
 
+    // SEARCH, the body isn't decoded or buffered. Read it with RecipeSearchStream and close it.
+    @Streaming
+    @GET("api/search")
+    LiveData<APIResponse<ResponseBody>> searchRecipeStream(
+            @Query("key") String key,
+            @Query("q") String query,
+            @Query("page") String page
+    );
+
     // GET RECIPE REQUEST
     @GET("api/get")
     LiveData<APIResponse<RecipeResponse>> getRecipe(
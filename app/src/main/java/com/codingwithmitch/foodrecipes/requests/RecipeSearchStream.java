@@ -0,0 +1,107 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.requests.json.RecipeTypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Decodes a search response (the JSON of RecipeSearchResponse) one recipe at a time.
+ *
+ * Each recipe is handed to the RecipeSink as soon as it is read and isn't referenced after that,
+ * so only one recipe is in memory at a time instead of the whole response.
+ */
+public class RecipeSearchStream {
+
+    public interface RecipeSink {
+        @WorkerThread
+        void accept(Recipe recipe) throws IOException;
+    }
+
+    public static class Result {
+
+        private int count;
+        private int decoded;
+        private String error;
+
+        /**
+         * @return "count" of the response
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return number of recipes handed to the sink
+         */
+        public int getDecoded() {
+            return decoded;
+        }
+
+        /**
+         * @return "error" of the response, e.g. when the API key expired
+         */
+        @Nullable
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "count=" + count +
+                    ", decoded=" + decoded +
+                    ", error='" + error + '\'' +
+                    '}';
+        }
+    }
+
+    @WorkerThread
+    public static Result read(Reader in, RecipeSink sink) throws IOException {
+        Result result = new Result();
+        JsonReader reader = new JsonReader(in);
+        try {
+            reader.beginObject();
+            while(reader.hasNext()) {
+                String name = reader.nextName();
+                if(reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "count": {
+                        result.count = reader.nextInt();
+                        break;
+                    }
+                    case "error": {
+                        result.error = reader.nextString();
+                        break;
+                    }
+                    case "recipes": {
+                        reader.beginArray();
+                        while(reader.hasNext()) {
+                            sink.accept(RecipeTypeAdapter.INSTANCE.read(reader));
+                            result.decoded++;
+                        }
+                        reader.endArray();
+                        break;
+                    }
+                    default: {
+                        reader.skipValue();
+                        break;
+                    }
+                }
+            }
+            reader.endObject();
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+}
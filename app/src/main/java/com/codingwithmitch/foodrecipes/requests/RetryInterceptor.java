@@ -0,0 +1,113 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Retries idempotent (GET) requests that failed with an IOException or a 5xx/429 response.
+ *
+ * The wait before retry n is random between 0 and min(maxDelay, baseDelay * 2^n) ("full jitter"),
+ * so clients that failed at the same moment don't all come back at the same moment.
+ * Cancelled calls are never retried.
+ */
+public class RetryInterceptor implements Interceptor {
+    private static final String TAG = "RetryInterceptor";
+
+    private final int mMaxRetries;
+    private final long mBaseDelayMs;
+    private final long mMaxDelayMs;
+    private final Random mRandom;
+
+    private final AtomicLong mRetries = new AtomicLong();
+
+    /**
+     * @param maxRetries retries after the first attempt
+     * @param baseDelayMs
+     * @param maxDelayMs cap of the backoff
+     */
+    public RetryInterceptor(int maxRetries, long baseDelayMs, long maxDelayMs) {
+        this(maxRetries, baseDelayMs, maxDelayMs, new Random());
+    }
+
+    public RetryInterceptor(int maxRetries, long baseDelayMs, long maxDelayMs, Random random) {
+        mMaxRetries = maxRetries;
+        mBaseDelayMs = baseDelayMs;
+        mMaxDelayMs = maxDelayMs;
+        mRandom = random;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if(!"GET".equals(request.method())) {
+            return chain.proceed(request);
+        }
+
+        int attempt = 0;
+        while(true) {
+            Response response = null;
+            IOException error = null;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            boolean retry = attempt < mMaxRetries && !chain.call().isCanceled()
+                    && (error != null || shouldRetry(response.code()));
+            if(!retry) {
+                if(error != null) {
+                    throw error;
+                }
+                return response;
+            }
+            if(response != null) {
+                response.close();
+            }
+
+            long delay = backoff(attempt);
+            Log.i(TAG, "intercept: retry " + (attempt + 1) + " of " + request.url()
+                    + " in " + delay + "ms" + (error != null ? " (" + error.getMessage() + ")" : ""));
+            sleep(delay);
+            mRetries.incrementAndGet();
+            attempt++;
+        }
+    }
+
+    /**
+     * @return total number of retries made
+     */
+    public long getRetryCount() {
+        return mRetries.get();
+    }
+
+    static boolean isServerFailure(int code) {
+        return code >= 500;
+    }
+
+    private static boolean shouldRetry(int code) {
+        return code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(mMaxDelayMs, mBaseDelayMs << Math.min(attempt, 30));
+        return (long) (mRandom.nextDouble() * ceiling);
+    }
+
+    private void sleep(long delayMs) throws IOException {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to retry");
+        }
+    }
+}
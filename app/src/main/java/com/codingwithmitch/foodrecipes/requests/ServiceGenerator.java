@@ -1,5 +1,6 @@
 package com.codingwithmitch.foodrecipes.requests;
 
+import com.codingwithmitch.foodrecipes.requests.json.RecipeTypeAdapterFactory;
 import com.codingwithmitch.foodrecipes.util.Constants;
 import com.codingwithmitch.foodrecipes.util.LiveDataCallAdapterFactory;
 
@@ -11,11 +12,22 @@ import retrofit2.converter.gson.GsonConverterFactory;
 
 public class ServiceGenerator {
 
+    private static CircuitBreaker sCircuitBreaker = new CircuitBreaker(
+            Constants.CIRCUIT_FAILURE_THRESHOLD, Constants.CIRCUIT_OPEN_TIME);
+
+    private static RetryInterceptor sRetryInterceptor = new RetryInterceptor(
+            Constants.NETWORK_MAX_RETRIES, Constants.NETWORK_RETRY_BASE_DELAY,
+            Constants.NETWORK_RETRY_MAX_DELAY);
+
     private static OkHttpClient sClient = new OkHttpClient.Builder()
             .connectTimeout(Constants.CONNECTION_TIMEOUT, TimeUnit.SECONDS) // 10 secs to establish connection
             .readTimeout(Constants.READ_TIMEOUT, TimeUnit.SECONDS) // 2 sec to read between each byte from server
             .writeTimeout(Constants.WRITE_TIMEOUT, TimeUnit.SECONDS) // 2 sec to write between each byte sent to server
-            .retryOnConnectionFailure(false).build();
+            .retryOnConnectionFailure(false)
+            .addInterceptor(new CircuitBreakerInterceptor(sCircuitBreaker)) // fail fast while the server is down
+            .addInterceptor(sRetryInterceptor) // retry GETs with backoff
+            .eventListenerFactory(NetworkMetricsListener.FACTORY) // phase timings per endpoint
+            .build();
 
 
     /**
@@ -26,7 +38,7 @@ public class ServiceGenerator {
                     .baseUrl(Constants.BASE_URL)
                     .client(sClient)
                     .addCallAdapterFactory(new LiveDataCallAdapterFactory())
-                    .addConverterFactory(GsonConverterFactory.create());
+                    .addConverterFactory(GsonConverterFactory.create(RecipeTypeAdapterFactory.create()));
 
     private static Retrofit retrofit = retrofitBuilder.build();
 
@@ -35,4 +47,12 @@ public class ServiceGenerator {
     public static RecipeApi getRecipeApi(){
         return recipeApi;
     }
+
+    public static CircuitBreaker getCircuitBreaker() {
+        return sCircuitBreaker;
+    }
+
+    public static RetryInterceptor getRetryInterceptor() {
+        return sRetryInterceptor;
+    }
 }
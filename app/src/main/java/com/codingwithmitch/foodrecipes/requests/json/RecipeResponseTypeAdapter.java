@@ -0,0 +1,64 @@
+package com.codingwithmitch.foodrecipes.requests.json;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+public class RecipeResponseTypeAdapter extends TypeAdapter<RecipeResponse> {
+
+    @Override
+    public void write(JsonWriter out, RecipeResponse response) throws IOException {
+        if(response == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if(response.getRecipe() != null) {
+            out.name("recipe");
+            RecipeTypeAdapter.INSTANCE.write(out, response.getRecipe());
+        }
+        if(response.getError() != null) {
+            out.name("error").value(response.getError());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public RecipeResponse read(JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Recipe recipe = null;
+        String error = null;
+        in.beginObject();
+        while(in.hasNext()) {
+            String name = in.nextName();
+            if(in.peek() == JsonToken.NULL) {
+                in.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "recipe": {
+                    recipe = RecipeTypeAdapter.INSTANCE.read(in);
+                    break;
+                }
+                case "error": {
+                    error = in.nextString();
+                    break;
+                }
+                default: {
+                    in.skipValue();
+                    break;
+                }
+            }
+        }
+        in.endObject();
+        return new RecipeResponse(recipe, error);
+    }
+}
@@ -0,0 +1,80 @@
+package com.codingwithmitch.foodrecipes.requests.json;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecipeSearchResponseTypeAdapter extends TypeAdapter<RecipeSearchResponse> {
+
+    @Override
+    public void write(JsonWriter out, RecipeSearchResponse response) throws IOException {
+        if(response == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("count").value(response.getCount());
+        if(response.getRecipes() != null) {
+            out.name("recipes").beginArray();
+            for(Recipe recipe: response.getRecipes()) {
+                RecipeTypeAdapter.INSTANCE.write(out, recipe);
+            }
+            out.endArray();
+        }
+        if(response.getError() != null) {
+            out.name("error").value(response.getError());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public RecipeSearchResponse read(JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int count = 0;
+        List<Recipe> recipes = null;
+        String error = null;
+        in.beginObject();
+        while(in.hasNext()) {
+            String name = in.nextName();
+            if(in.peek() == JsonToken.NULL) {
+                in.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "count": {
+                    count = in.nextInt();
+                    break;
+                }
+                case "recipes": {
+                    recipes = new ArrayList<>();
+                    in.beginArray();
+                    while(in.hasNext()) {
+                        recipes.add(RecipeTypeAdapter.INSTANCE.read(in));
+                    }
+                    in.endArray();
+                    break;
+                }
+                case "error": {
+                    error = in.nextString();
+                    break;
+                }
+                default: {
+                    in.skipValue();
+                    break;
+                }
+            }
+        }
+        in.endObject();
+        return new RecipeSearchResponse(count, recipes, error);
+    }
+}
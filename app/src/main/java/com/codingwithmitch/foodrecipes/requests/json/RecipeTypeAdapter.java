@@ -0,0 +1,89 @@
+package com.codingwithmitch.foodrecipes.requests.json;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes a Recipe field by field, the same JSON Gson's reflective adapter produced.
+ * Unknown fields (f2f_url, source_url, ...) are skipped.
+ */
+public class RecipeTypeAdapter extends TypeAdapter<Recipe> {
+
+    public static final RecipeTypeAdapter INSTANCE = new RecipeTypeAdapter();
+
+    @Override
+    public void write(JsonWriter out, Recipe recipe) throws IOException {
+        if(recipe == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("recipe_id").value(recipe.getRecipe_id());
+        out.name("title").value(recipe.getTitle());
+        out.name("publisher").value(recipe.getPublisher());
+        out.name("image_url").value(recipe.getImage_url());
+        out.name("social_rank").value(recipe.getSocial_rank());
+        out.name("ingredients");
+        StringArrayTypeAdapter.INSTANCE.write(out, recipe.getIngredients());
+        out.name("timestamp").value(recipe.getTimestamp());
+        out.endObject();
+    }
+
+    @Override
+    public Recipe read(JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Recipe recipe = new Recipe();
+        in.beginObject();
+        while(in.hasNext()) {
+            String name = in.nextName();
+            if(in.peek() == JsonToken.NULL) {
+                in.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "recipe_id": {
+                    recipe.setRecipe_id(in.nextString());
+                    break;
+                }
+                case "title": {
+                    recipe.setTitle(in.nextString());
+                    break;
+                }
+                case "publisher": {
+                    recipe.setPublisher(in.nextString());
+                    break;
+                }
+                case "image_url": {
+                    recipe.setImage_url(in.nextString());
+                    break;
+                }
+                case "social_rank": {
+                    recipe.setSocial_rank((float) in.nextDouble());
+                    break;
+                }
+                case "ingredients": {
+                    recipe.setIngredients(StringArrayTypeAdapter.INSTANCE.read(in));
+                    break;
+                }
+                case "timestamp": {
+                    recipe.setTimestamp(in.nextInt());
+                    break;
+                }
+                default: {
+                    in.skipValue();
+                    break;
+                }
+            }
+        }
+        in.endObject();
+        return recipe;
+    }
+}
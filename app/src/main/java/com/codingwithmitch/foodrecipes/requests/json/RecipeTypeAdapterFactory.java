@@ -0,0 +1,47 @@
+package com.codingwithmitch.foodrecipes.requests.json;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeResponse;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Hand written TypeAdapters for the API models. Without these Gson builds a reflective adapter for
+ * each type on first use (slow first request) and sets every field through reflection.
+ *
+ * Add it to any Gson that reads or writes these types, see create().
+ */
+public class RecipeTypeAdapterFactory implements TypeAdapterFactory {
+
+    /**
+     * @return a Gson that uses these adapters
+     */
+    public static Gson create() {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(new RecipeTypeAdapterFactory())
+                .create();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if(rawType == Recipe.class) {
+            return (TypeAdapter<T>) RecipeTypeAdapter.INSTANCE;
+        }
+        if(rawType == RecipeSearchResponse.class) {
+            return (TypeAdapter<T>) new RecipeSearchResponseTypeAdapter();
+        }
+        if(rawType == RecipeResponse.class) {
+            return (TypeAdapter<T>) new RecipeResponseTypeAdapter();
+        }
+        if(rawType == String[].class) {
+            return (TypeAdapter<T>) StringArrayTypeAdapter.INSTANCE;
+        }
+        return null;
+    }
+}
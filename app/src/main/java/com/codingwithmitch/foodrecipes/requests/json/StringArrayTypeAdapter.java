@@ -0,0 +1,51 @@
+package com.codingwithmitch.foodrecipes.requests.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * String[] as a JSON array of strings. Used for the ingredients of a Recipe and by Converters.
+ */
+public class StringArrayTypeAdapter extends TypeAdapter<String[]> {
+
+    public static final StringArrayTypeAdapter INSTANCE = new StringArrayTypeAdapter();
+
+    @Override
+    public void write(JsonWriter out, String[] values) throws IOException {
+        if(values == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for(String value: values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    @Override
+    public String[] read(JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while(in.hasNext()) {
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                values.add(null);
+            } else {
+                values.add(in.nextString());
+            }
+        }
+        in.endArray();
+        return values.toArray(new String[values.size()]);
+    }
+}
@@ -18,6 +18,13 @@ public class APIResponse<T> {
                 "Unknown error\nCheck network connection");
     }
 
+    /**
+     * For calls that were cancelled. Whatever the server sent back is ignored.
+     */
+    public APIResponse<T> cancelled() {
+        return new ApiCancelledResponse<>();
+    }
+
     public APIResponse<T> create(Response<T> response) {
         if(response.isSuccessful()) {
             T body = response.body();
@@ -80,4 +87,7 @@ public class APIResponse<T> {
 
     public class ApiEmptyResponse<T> extends APIResponse<T> {
     }
-}
\ No newline at end of file
+
+    public class ApiCancelledResponse<T> extends APIResponse<T> {
+    }
+}
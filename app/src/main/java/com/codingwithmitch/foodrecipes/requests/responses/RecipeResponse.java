@@ -17,6 +17,14 @@ public class RecipeResponse {
     @Expose()
     private String error;
 
+    public RecipeResponse() {
+    }
+
+    public RecipeResponse(Recipe recipe, String error) {
+        this.recipe = recipe;
+        this.error = error;
+    }
+
     public String getError() {
         return error;
     }
@@ -23,6 +23,15 @@ public class RecipeSearchResponse {
     @Expose()
     private String error;
 
+    public RecipeSearchResponse() {
+    }
+
+    public RecipeSearchResponse(int count, List<Recipe> recipes, String error) {
+        this.count = count;
+        this.recipes = recipes;
+        this.error = error;
+    }
+
     public String getError() {
         return error;
     }
@@ -0,0 +1,51 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hit/miss counters for a cache. Thread safe.
+ */
+public class CacheStats {
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+
+    public void hit() {
+        mHits.incrementAndGet();
+    }
+
+    public void miss() {
+        mMisses.incrementAndGet();
+    }
+
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    /**
+     * @return hits / (hits + misses), 0 if there were no requests yet
+     */
+    public double getHitRate() {
+        long hits = mHits.get();
+        long total = hits + mMisses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void reset() {
+        mHits.set(0);
+        mMisses.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", hitRate=" + getHitRate() +
+                '}';
+    }
+}
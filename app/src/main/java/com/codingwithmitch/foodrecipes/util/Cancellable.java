@@ -0,0 +1,15 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.support.annotation.MainThread;
+
+/**
+ * Implemented by the LiveData objects that are backed by a network request. cancel() stops the
+ * request (and whatever was going to happen with its result).
+ */
+public interface Cancellable {
+
+    @MainThread
+    void cancel();
+
+    boolean isCancelled();
+}
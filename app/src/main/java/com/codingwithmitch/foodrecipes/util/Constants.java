@@ -11,8 +11,43 @@ public class Constants {
     public static final int READ_TIMEOUT = 5;
     public static final int WRITE_TIMEOUT = 5;
 
+    // Retries of failed GETs (see RetryInterceptor)
+    public static final int NETWORK_MAX_RETRIES = 3;
+    public static final long NETWORK_RETRY_BASE_DELAY = 500; // ms
+    public static final long NETWORK_RETRY_MAX_DELAY = 4000; // ms
+
+    // Failures in a row before requests fail fast, and for how long (see CircuitBreaker)
+    public static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    public static final int CIRCUIT_OPEN_TIME = 30; // secs
+
+    // Number of recipes read from the cache per page of search results
+    public static final int SEARCH_PAGE_SIZE = 30;
+
+    // Search pages loaded ahead of the one the user is waiting for (see SearchPager)
+    public static final int SEARCH_PAGES_AHEAD = 2;
+
+    // Bounds of how many items before the end of the list the next page starts loading, and the
+    // page load time assumed until one was measured (see PrefetchDistance)
+    public static final int SEARCH_PREFETCH_MIN_DISTANCE = 5;
+    public static final int SEARCH_PREFETCH_MAX_DISTANCE = 2 * SEARCH_PAGE_SIZE;
+    public static final long SEARCH_PAGE_LOAD_ESTIMATE = 1000; // ms
+
+    // Recipes per transaction when a search response is streamed into the db
+    public static final int STREAM_WRITE_BATCH_SIZE = 50;
+
+    // Recipe details loaded at a time for the recipes on screen (see RecipePrefetcher)
+    public static final int RECIPE_PREFETCH_MAX_IN_FLIGHT = 2;
+
     public static final int RECIPE_REFRESH_TIME = 60 * 60 * 24 * 30; //30 days in secs
 
+    public static final int SEARCH_REFRESH_TIME = 60 * 60; //1 hour in secs
+
+    // Cache eviction limits (see RecipeCacheEvictor)
+    public static final int CACHE_MAX_RECIPES = 5000;
+    public static final long CACHE_MAX_BYTES = 20 * 1024 * 1024; // 20 MB
+    public static final int MEMORY_CACHE_MAX_BYTES = 2 * 1024 * 1024; // 2 MB of recipes kept in memory
+    public static final int CACHE_TIME_TO_LIVE = 60 * 60 * 24 * 90; //90 days in secs
+
 
     public static final String[] DEFAULT_SEARCH_CATEGORIES =
             {"Barbeque", "Breakfast", "Chicken", "Beef", "Brunch", "Dinner", "Wine", "Italian"};
@@ -0,0 +1,31 @@
+package com.codingwithmitch.foodrecipes.util;
+
+/**
+ * How a NetworkBoundResource decides between the cache and the network.
+ */
+public enum FetchPolicy {
+
+    /**
+     * Only the cache. Never goes to the network.
+     */
+    CACHE_ONLY,
+
+    /**
+     * Always goes to the network, even if shouldFetch() says the cache is fine. The cached data is not
+     * shown while loading.
+     */
+    NETWORK_ONLY,
+
+    /**
+     * Uses the cache if shouldFetch() says it's fine, otherwise shows LOADING with the cached data
+     * and waits for the network. This is the default.
+     */
+    CACHE_FIRST,
+
+    /**
+     * Shows the cached data right away as SUCCESS (Resource.stale == true). If shouldFetch() says it
+     * needs refreshing, that happens in the background and the fresh data is emitted when it's done.
+     * If there is nothing cached yet this behaves like CACHE_FIRST.
+     */
+    STALE_WHILE_REVALIDATE
+}
@@ -0,0 +1,156 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
+import android.arch.lifecycle.Observer;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Single-flight registry for resources.
+ *
+ * While a resource for a key is still loading, asking for the same key again returns the same
+ * LiveData instead of creating a new one. So two callers asking for the same (query, page) at the
+ * same time share one network call and one saveCallResult(), and both get every result (a late
+ * subscriber gets the latest value as soon as it starts observing).
+ *
+ * Once the resource is done (a non stale SUCCESS or an ERROR) the key is released and the next
+ * request creates a new resource.
+ *
+ * The shared LiveData is Cancellable if the resource is. Cancelling it cancels the request for every
+ * caller sharing it and releases the key right away.
+ *
+ * Every get() counts as one more caller holding the LiveData. A caller that doesn't need it anymore
+ * (e.g. a ViewModel in onCleared()) calls release() instead of cancelling, and the request is only
+ * cancelled once the last caller released it while it was still in flight.
+ *
+ * It is Prioritized if the resource is. A caller joining a request that is in flight with a lower
+ * priority raises it to its own, joining never lowers it.
+ * @param <T>
+ */
+public class InFlightRegistry<T> {
+
+    public interface Factory<T> {
+        @NonNull
+        LiveData<Resource<T>> create();
+    }
+
+    private final Map<String, SharedLiveData<T>> mInFlight = new HashMap<>();
+
+    /**
+     * @param priority the priority the factory creates the resource with
+     */
+    @MainThread
+    public LiveData<Resource<T>> get(final String key, Priority priority, Factory<T> factory) {
+        SharedLiveData<T> inFlight = mInFlight.get(key);
+        if(inFlight != null) {
+            if(priority.ordinal() < inFlight.mPriority.ordinal()) {
+                inFlight.setPriority(priority);
+            }
+            inFlight.mHolders++;
+            return inFlight;
+        }
+
+        final LiveData<Resource<T>> source = factory.create();
+        final SharedLiveData<T> shared = new SharedLiveData<T>(key, source, priority) {
+            @Override
+            public void cancel() {
+                if(mInFlight.get(key) == this) {
+                    mInFlight.remove(key);
+                }
+                super.cancel();
+            }
+        };
+        shared.addSource(source, new Observer<Resource<T>>() {
+            @Override
+            public void onChanged(@Nullable Resource<T> resource) {
+                shared.setValue(resource);
+                if(isDone(resource) && mInFlight.get(key) == shared) {
+                    mInFlight.remove(key);
+                }
+            }
+        });
+        shared.mHolders = 1;
+        mInFlight.put(key, shared);
+        return shared;
+    }
+
+    /**
+     * The caller doesn't need a LiveData returned by get() anymore. Once every caller released it
+     * the request is cancelled, if it is still in flight. Call it once per get().
+     */
+    @MainThread
+    public void release(LiveData<Resource<T>> liveData) {
+        if(!(liveData instanceof SharedLiveData)) {
+            return;
+        }
+        SharedLiveData<T> shared = (SharedLiveData<T>) liveData;
+        if(shared.mHolders > 0) {
+            shared.mHolders--;
+        }
+        if(shared.mHolders == 0 && mInFlight.get(shared.mKey) == shared) {
+            shared.cancel();
+        }
+    }
+
+    /**
+     * @return number of keys currently in flight
+     */
+    @MainThread
+    public int size() {
+        return mInFlight.size();
+    }
+
+    private static class SharedLiveData<T> extends MediatorLiveData<Resource<T>>
+            implements Cancellable, Retryable, Prioritized {
+
+        private final String mKey;
+        private final LiveData<Resource<T>> mSource;
+        private Priority mPriority;
+        // callers that got it from get() and haven't released it
+        private int mHolders;
+
+        SharedLiveData(String key, LiveData<Resource<T>> source, Priority priority) {
+            mKey = key;
+            mSource = source;
+            mPriority = priority;
+        }
+
+        @Override
+        public void cancel() {
+            if(mSource instanceof Cancellable) {
+                ((Cancellable) mSource).cancel();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mSource instanceof Cancellable && ((Cancellable) mSource).isCancelled();
+        }
+
+        @Override
+        public void retry() {
+            if(mSource instanceof Retryable) {
+                ((Retryable) mSource).retry();
+            }
+        }
+
+        @Override
+        public void setPriority(Priority priority) {
+            mPriority = priority;
+            if(mSource instanceof Prioritized) {
+                ((Prioritized) mSource).setPriority(priority);
+            }
+        }
+    }
+
+    private static boolean isDone(@Nullable Resource<?> resource) {
+        return resource == null
+                || (resource.status == Resource.Status.SUCCESS && !resource.stale)
+                || resource.status == Resource.Status.ERROR;
+    }
+}
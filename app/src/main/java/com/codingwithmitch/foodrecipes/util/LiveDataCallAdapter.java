@@ -1,14 +1,18 @@
 package com.codingwithmitch.foodrecipes.util;
 
 import android.arch.lifecycle.LiveData;
+import android.util.Log;
 
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.PriorityExecutor;
 import com.codingwithmitch.foodrecipes.requests.responses.APIResponse;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.reflect.Type;
 
 import retrofit2.Call;
 import retrofit2.CallAdapter;
-import retrofit2.Callback;
 import retrofit2.Response;
 
 /**
@@ -16,11 +20,25 @@ import retrofit2.Response;
  *
  * Generic type R is the Retrofit Response Type
  *
+ * Every LiveData executes its Call exactly once, however often and however long it goes inactive
+ * (backgrounding, rotation). The call keeps running while nobody observes it and its APIResponse
+ * stays as the LiveData's value, so the observers that come back get it replayed: nothing is lost
+ * and nothing is requested twice. A failed call only runs again on retry().
+ *
+ * The LiveData is Cancellable. The Call is only cancelled (and the connection released) when
+ * cancel() is called. Losing every observer doesn't cancel it: the screen may just be stopped and
+ * the result is still wanted, and a shared request may be joined again later.
+ *
+ * The LiveData is also Prioritized. The call runs on AppExecutors.networkIO() as a task with its own
+ * Priority (USER_VISIBLE unless set), and setPriority() moves it while it waits for a thread.
+ *
  * This still requires a factory class to produce these Adapters before we can implement in ServiceGenerator.
  * @param <R>
  */
 public class LiveDataCallAdapter<R> implements CallAdapter<R, LiveData<APIResponse<R>>> {
 
+    private static final String TAG = "LiveDataCallAdapter";
+
     private Type responseType;
 
     public LiveDataCallAdapter(Type responseType) {
@@ -34,23 +52,134 @@ public class LiveDataCallAdapter<R> implements CallAdapter<R, LiveData<APIRespon
 
     @Override
     public LiveData<APIResponse<R>> adapt(final Call<R> call) {
-        return new LiveData<APIResponse<R>>() {
-            @Override
-            protected void onActive() {
-                super.onActive();
-                final APIResponse apiResponse = new APIResponse();
-                call.enqueue(new Callback<R>() {
-                    @Override
-                    public void onResponse(Call<R> call, Response<R> response) {
-                        postValue(apiResponse.create(response));
+        return new CallLiveData<>(call);
+    }
+
+    private static class CallLiveData<R> extends LiveData<APIResponse<R>>
+            implements Cancellable, Retryable, Prioritized {
+
+        // replaced by a clone on retry()
+        private Call<R> mCall;
+
+        private Priority mPriority = Priority.USER_VISIBLE;
+
+        // the queued call, moved by setPriority() while it waits for a network thread
+        private PriorityExecutor.Task mTask;
+
+        // the call is run at most once, observers that come later get the value replayed
+        private boolean mStarted;
+        private boolean mDone;
+
+        CallLiveData(Call<R> call) {
+            mCall = call;
+        }
+
+        @Override
+        protected void onActive() {
+            super.onActive();
+            if(!mStarted && !mCall.isCanceled()) {
+                execute();
+            }
+        }
+
+        private void execute() {
+            mStarted = true;
+            mDone = false;
+            final Call<R> call = mCall;
+            final APIResponse<R> apiResponse = new APIResponse<>();
+            // the call runs on a network thread as a task of its own, so it keeps its priority
+            // however long it waits
+            mTask = AppExecutors.getInstance().networkIO().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if(call.isCanceled()) {
+                        deliver(call, apiResponse.cancelled());
+                        return;
+                    }
+                    try {
+                        Response<R> response = call.execute();
+                        if(call.isCanceled()) {
+                            // a streamed body would keep the connection open
+                            if(response.body() instanceof Closeable) {
+                                closeQuietly((Closeable) response.body());
+                            }
+                            deliver(call, apiResponse.cancelled());
+                        } else {
+                            deliver(call, apiResponse.create(response));
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        if(call.isCanceled()) {
+                            deliver(call, apiResponse.cancelled());
+                        } else {
+                            deliver(call, apiResponse.create(e));
+                        }
                     }
+                }
+            }, mPriority);
+        }
 
-                    @Override
-                    public void onFailure(Call<R> call, Throwable t) {
-                        postValue(apiResponse.create(t));
+        private static void closeQuietly(Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void deliver(final Call<R> call, final APIResponse<R> response) {
+            AppExecutors.getInstance().mainThread().execute(new Runnable() {
+                @Override
+                public void run() {
+                    // ignore a late result of a call that was replaced by retry()
+                    if(call == mCall) {
+                        mDone = true;
+                        setValue(response);
                     }
-                });
+                }
+            });
+        }
+
+        @Override
+        public void setPriority(Priority priority) {
+            mPriority = priority;
+            if(mTask != null) {
+                mTask.setPriority(priority);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            mCall.cancel();
+            // it never got a network thread, nothing else will deliver the result
+            if(mTask != null && mTask.cancel()) {
+                deliver(mCall, new APIResponse<R>().cancelled());
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCall.isCanceled();
+        }
+
+        /**
+         * Runs the request again with a clone of the call. Only does something once the previous
+         * call finished with an error or was cancelled.
+         */
+        @Override
+        public void retry() {
+            APIResponse<R> last = getValue();
+            boolean failed = last instanceof APIResponse.ApiErrorResponse
+                    || last instanceof APIResponse.ApiCancelledResponse
+                    || (mCall.isCanceled() && !mDone);
+            if(!mStarted || !failed) {
+                return;
+            }
+            Log.i(TAG, "retry: " + mCall.request().url());
+            mCall = mCall.clone();
+            if(hasActiveObservers()) {
+                execute();
+            } else {
+                mStarted = false;
             }
-        };
+        }
     }
 }
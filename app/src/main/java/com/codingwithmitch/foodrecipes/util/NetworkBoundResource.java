@@ -10,26 +10,83 @@ import android.support.annotation.WorkerThread;
 import android.util.Log;
 
 import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.PriorityExecutor;
+import com.codingwithmitch.foodrecipes.metrics.AppMetrics;
+import com.codingwithmitch.foodrecipes.metrics.Metrics;
 import com.codingwithmitch.foodrecipes.requests.responses.APIResponse;
 
+import java.io.IOException;
+import java.util.Collection;
+
 // CacheObject: Type for the Resource data. (database cache)
 // RequestObject: Type for the API response. (network request)
 
 /**
  * Very Important class. Dectates whether we return data from cache or not
+ *
+ * How the cache and the network are combined is decided by the FetchPolicy (CACHE_FIRST by default).
+ *
+ * The LiveData returned by getAsLiveData() is Cancellable. Cancelling stops the network call and
+ * skips saveCallResult(), then an ERROR with REQUEST_CANCELLED is emitted. It is also Retryable:
+ * the network is never asked twice unless retry() is called after an ERROR. And it is Prioritized:
+ * the network call and saveCallResult() are scheduled with the resource's Priority, which can be
+ * changed while they are still queued.
+ *
+ * The time of every stage is recorded to AppMetrics.get(), tagged with getResourceType() and
+ * whether the network was used ("cache=miss") or not ("cache=hit").
  * @param <CacheObject>
  * @param <RequestObject>
  */
 public abstract class NetworkBoundResource<CacheObject, RequestObject> {
     private static final String TAG = "NetworkBoundResource";
 
+    public static final String REQUEST_CANCELLED = "REQUEST_CANCELLED";
+
+    // Stage timings. Each is measured from the start of its stage, total from the constructor.
+    public static final String METRIC_FIRST_DB_EMISSION = "nbr.first_db_emission_ns";
+    public static final String METRIC_SHOULD_FETCH = "nbr.should_fetch_ns";
+    public static final String METRIC_NETWORK = "nbr.network_ns";
+    public static final String METRIC_SAVE_CALL_RESULT = "nbr.save_call_result_ns";
+    public static final String METRIC_RELOAD_FROM_DB = "nbr.reload_from_db_ns";
+    public static final String METRIC_TOTAL = "nbr.total_ns";
+
     private AppExecutors mAppExecutors;
 
+    private FetchPolicy mFetchPolicy;
+
+    private Priority mPriority;
+
+    // saveCallResult() waiting for the disk thread
+    private PriorityExecutor.Task mSaveTask;
+
     // Data the is observed in the UI
-    private MediatorLiveData<Resource<CacheObject>> results = new MediatorLiveData<>();
+    private MediatorLiveData<Resource<CacheObject>> results = new ResultLiveData();
+
+    private LiveData<CacheObject> mDbSource;
+    private LiveData<APIResponse<RequestObject>> mApiResponse;
+
+    // once the response arrived it is always saved, cancel() does nothing from then on
+    private boolean mCancelled;
+    private boolean mNetworkDone;
+
+    private final Metrics mMetrics = AppMetrics.get();
+    private final long mStartNanos = System.nanoTime();
+    private boolean mUsedNetwork;
+    private boolean mTotalRecorded;
 
     public NetworkBoundResource(AppExecutors appExecutors) {
+        this(appExecutors, FetchPolicy.CACHE_FIRST);
+    }
+
+    public NetworkBoundResource(AppExecutors appExecutors, FetchPolicy fetchPolicy) {
+        this(appExecutors, fetchPolicy, Priority.USER_VISIBLE);
+    }
+
+    public NetworkBoundResource(AppExecutors appExecutors, FetchPolicy fetchPolicy,
+            Priority priority) {
         mAppExecutors = appExecutors;
+        mFetchPolicy = fetchPolicy;
+        mPriority = priority;
         init();
     }
 
@@ -39,22 +96,73 @@ public abstract class NetworkBoundResource<CacheObject, RequestObject> {
 
         // observe LiveData source from local DB
         final LiveData<CacheObject> dbSource = loadFromDb();
+        mDbSource = dbSource;
 
         results.addSource(dbSource, new Observer<CacheObject>() {
             @Override
             public void onChanged(@Nullable CacheObject cacheObject) {
+                long firstEmission = System.nanoTime() - mStartNanos;
                 results.removeSource(dbSource);
-                if(shouldFetch(cacheObject)) {
+                if(mCancelled) {
+                    return;
+                }
+                decide(dbSource, cacheObject);
+                // recorded after deciding so it's tagged with hit/miss
+                recordStage(METRIC_FIRST_DB_EMISSION, firstEmission);
+            }
+        });
+    }
+
+    /**
+     * Decides between the cache and the network after the first emission of the db.
+     */
+    private void decide(LiveData<CacheObject> dbSource, @Nullable CacheObject cacheObject) {
+        switch (mFetchPolicy) {
+            case CACHE_ONLY: {
+                observeCache(dbSource);
+                break;
+            }
+            case NETWORK_ONLY: {
+                fetchFromNetwork(dbSource, null);
+                break;
+            }
+            case STALE_WHILE_REVALIDATE: {
+                if(!timedShouldFetch(cacheObject)) {
+                    observeCache(dbSource);
+                } else if(isEmpty(cacheObject)) {
+                    // nothing to show while revalidating, wait for the network
+                    fetchFromNetwork(dbSource, null);
+                } else {
+                    setValue(Resource.stale(cacheObject));
+                    fetchFromNetwork(dbSource, cacheObject);
+                }
+                break;
+            }
+            default: {
+                if(timedShouldFetch(cacheObject)) {
                     // get data from network
-                    fetchFromNetwork(dbSource);
+                    fetchFromNetwork(dbSource, null);
                 } else {
-                    results.addSource(dbSource, new Observer<CacheObject>() {
-                        @Override
-                        public void onChanged(@Nullable CacheObject cacheObject) {
-                            setValue(Resource.success(cacheObject));
-                        }
-                    });
+                    observeCache(dbSource);
                 }
+                break;
+            }
+        }
+    }
+
+    private boolean timedShouldFetch(@Nullable CacheObject cacheObject) {
+        long start = System.nanoTime();
+        boolean fetch = shouldFetch(cacheObject);
+        mMetrics.record(METRIC_SHOULD_FETCH, System.nanoTime() - start,
+                "resource=" + getResourceType(), "cache=" + (fetch ? "miss" : "hit"));
+        return fetch;
+    }
+
+    private void observeCache(LiveData<CacheObject> dbSource) {
+        results.addSource(dbSource, new Observer<CacheObject>() {
+            @Override
+            public void onChanged(@Nullable CacheObject cacheObject) {
+                setSuccess(cacheObject);
             }
         });
     }
@@ -65,82 +173,233 @@ public abstract class NetworkBoundResource<CacheObject, RequestObject> {
      * 3) Stop observing local DB
      * 4) Insert new Data into local DB
      * 5) Begin observing local DB again to see refreshed state from network
+     *
+     * @param staleData the data already emitted as stale (STALE_WHILE_REVALIDATE), otherwise null
      */
-    private void fetchFromNetwork(final LiveData<CacheObject> dbSource) {
-        results.addSource(dbSource, new Observer<CacheObject>() {
-            @Override
-            public void onChanged(@Nullable CacheObject cacheObject) {
-                setValue(Resource.loading(cacheObject));
-            }
-        });
+    private void fetchFromNetwork(final LiveData<CacheObject> dbSource, @Nullable final CacheObject staleData) {
+        if(mFetchPolicy == FetchPolicy.CACHE_FIRST
+                || (mFetchPolicy == FetchPolicy.STALE_WHILE_REVALIDATE && staleData == null)) {
+            results.addSource(dbSource, new Observer<CacheObject>() {
+                @Override
+                public void onChanged(@Nullable CacheObject cacheObject) {
+                    setValue(Resource.loading(cacheObject));
+                }
+            });
+        }
+        mUsedNetwork = true;
+        final long networkStart = System.nanoTime();
         final LiveData<APIResponse<RequestObject>> apiResponse = createCall();
+        mApiResponse = apiResponse;
+        if(apiResponse instanceof Prioritized) {
+            ((Prioritized) apiResponse).setPriority(mPriority);
+        }
 
         results.addSource(apiResponse, new Observer<APIResponse<RequestObject>>() {
             @Override
             public void onChanged(@Nullable final APIResponse<RequestObject> requestObjectAPIResponse) {
                 results.removeSource(dbSource);
                 results.removeSource(apiResponse);
+                mNetworkDone = true;
+                recordStage(METRIC_NETWORK, System.nanoTime() - networkStart);
 
-                if(requestObjectAPIResponse instanceof APIResponse.ApiSuccessResponse) {
-                    mAppExecutors.diskIO().execute(new Runnable() {
+                if(requestObjectAPIResponse instanceof APIResponse.ApiCancelledResponse) {
+                    // the call was cancelled directly, not through this resource
+                    mCancelled = true;
+                    setValue(Resource.<CacheObject>error(REQUEST_CANCELLED, staleData));
+                } else if(requestObjectAPIResponse instanceof APIResponse.ApiSuccessResponse) {
+                    mSaveTask = getSaveExecutor().execute(new Runnable() {
                         @Override
                         public void run() {
-
                             // save response to the local DB
-                            saveCallResult(
-                                    (RequestObject) processResponse(
-                                            (APIResponse.ApiSuccessResponse) requestObjectAPIResponse));
+                            long saveStart = System.nanoTime();
+                            try {
+                                saveCallResult(
+                                        (RequestObject) processResponse(
+                                                (APIResponse.ApiSuccessResponse) requestObjectAPIResponse));
+                            } catch (final IOException e) {
+                                Log.e(TAG, "run: saveCallResult failed", e);
+                                mAppExecutors.mainThread().execute(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        observeCacheWithError(dbSource, e.getMessage());
+                                    }
+                                });
+                                return;
+                            }
+                            recordStage(METRIC_SAVE_CALL_RESULT, System.nanoTime() - saveStart);
                             mAppExecutors.mainThread().execute(new Runnable() {
                                 @Override
                                 public void run() {
-                                    results.addSource(loadFromDb(), new Observer<CacheObject>() {
-                                        @Override
-                                        public void onChanged(@Nullable CacheObject cacheObject) {
-                                            setValue(Resource.success(cacheObject));
-                                        }
-                                    });
+                                    observeRefreshedCache(staleData);
                                 }
                             });
                         }
-                    });
+                    }, mPriority);
                 } else if(requestObjectAPIResponse instanceof APIResponse.ApiEmptyResponse) {
                     mAppExecutors.mainThread().execute(new Runnable() {
                         @Override
                         public void run() {
-                            results.addSource(loadFromDb(), new Observer<CacheObject>() {
-                                @Override
-                                public void onChanged(@Nullable CacheObject cacheObject) {
-                                    setValue(Resource.success(cacheObject));
-                                }
-                            });
+                            observeRefreshedCache(staleData);
                         }
                     });
                 } else if(requestObjectAPIResponse instanceof APIResponse.ApiErrorResponse) {
-                    results.addSource(dbSource, new Observer<CacheObject>() {
-                        @Override
-                        public void onChanged(@Nullable CacheObject cacheObject) {
-                            setValue(Resource.error(((APIResponse.ApiErrorResponse)
-                                            requestObjectAPIResponse).getErrorMessage(), cacheObject));
-                        }
-                    });
+                    observeCacheWithError(dbSource, ((APIResponse.ApiErrorResponse)
+                            requestObjectAPIResponse).getErrorMessage());
+                }
+            }
+        });
+    }
+
+    private void observeCacheWithError(LiveData<CacheObject> dbSource, final String errorMessage) {
+        results.addSource(dbSource, new Observer<CacheObject>() {
+            @Override
+            public void onChanged(@Nullable CacheObject cacheObject) {
+                setValue(Resource.error(errorMessage, cacheObject));
+            }
+        });
+    }
+
+    /**
+     * After a refresh the cache is observed again. If it didn't actually change since the stale data
+     * was shown, the stale instance is emitted again (as fresh, once) so observers can tell by
+     * identity that there is nothing new to display.
+     */
+    private void observeRefreshedCache(@Nullable final CacheObject staleData) {
+        final long reloadStart = System.nanoTime();
+        results.addSource(loadFromDb(), new Observer<CacheObject>() {
+            private boolean mReloaded;
+
+            @Override
+            public void onChanged(@Nullable CacheObject cacheObject) {
+                if(!mReloaded) {
+                    mReloaded = true;
+                    recordStage(METRIC_RELOAD_FROM_DB, System.nanoTime() - reloadStart);
+                }
+                if(staleData != null && staleData.equals(cacheObject)) {
+                    setSuccess(staleData);
+                } else {
+                    setSuccess(cacheObject);
                 }
             }
         });
     }
 
+    /**
+     * Used by STALE_WHILE_REVALIDATE: empty data isn't worth showing as stale, it waits for the
+     * network instead. Override if the cached data can be incomplete.
+     */
+    protected boolean isEmpty(@Nullable CacheObject data) {
+        return data == null || (data instanceof Collection && ((Collection) data).isEmpty());
+    }
+
+    /**
+     * Cancels the network call if there is one in flight. Does nothing once the response arrived.
+     */
+    @MainThread
+    public void cancel() {
+        if(mCancelled || mNetworkDone) {
+            return;
+        }
+        mCancelled = true;
+        if(mDbSource != null) {
+            results.removeSource(mDbSource);
+        }
+        if(mApiResponse != null) {
+            results.removeSource(mApiResponse);
+            if(mApiResponse instanceof Cancellable) {
+                ((Cancellable) mApiResponse).cancel();
+            }
+        }
+        Resource<CacheObject> current = results.getValue();
+        setValue(Resource.error(REQUEST_CANCELLED, current != null ? current.data : null));
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Changes the priority of the network call and saveCallResult(), if they haven't started yet,
+     * and of the ones that come later (retry()).
+     */
+    @MainThread
+    public void setPriority(Priority priority) {
+        mPriority = priority;
+        if(mApiResponse instanceof Prioritized) {
+            ((Prioritized) mApiResponse).setPriority(priority);
+        }
+        if(mSaveTask != null) {
+            mSaveTask.setPriority(priority);
+        }
+    }
+
+    /**
+     * Fetches from the network again after an ERROR (including a cancelled request).
+     */
+    @MainThread
+    public void retry() {
+        Resource<CacheObject> current = results.getValue();
+        if(mDbSource == null || current == null || current.status != Resource.Status.ERROR) {
+            return;
+        }
+        Log.i(TAG, "retry: fetching from the network again");
+        mCancelled = false;
+        mNetworkDone = false;
+        results.removeSource(mDbSource);
+        fetchFromNetwork(mDbSource, null);
+    }
+
     private CacheObject processResponse(APIResponse.ApiSuccessResponse response) {
         return (CacheObject) response.getBody();
     }
 
+    /**
+     * Room emits again whenever one of the tables changes, skip it if the data didn't.
+     */
+    private void setSuccess(@Nullable CacheObject data) {
+        Resource<CacheObject> current = results.getValue();
+        if(current != null && current.status == Resource.Status.SUCCESS && !current.stale
+                && (current.data == null ? data == null : current.data.equals(data))) {
+            return;
+        }
+        setValue(Resource.success(data));
+    }
+
     private void setValue(Resource<CacheObject> newValue) {
         if(results.getValue() != newValue) {
+            if(!mTotalRecorded && newValue.status == Resource.Status.SUCCESS && !newValue.stale) {
+                mTotalRecorded = true;
+                recordStage(METRIC_TOTAL, System.nanoTime() - mStartNanos);
+            }
             results.setValue(newValue);
         }
     }
 
+    private void recordStage(String name, long nanos) {
+        mMetrics.record(name, nanos, "resource=" + getResourceType(),
+                "cache=" + (mUsedNetwork ? "miss" : "hit"));
+    }
+
+    /**
+     * Tag of the metrics of this resource, e.g. "search".
+     */
+    protected String getResourceType() {
+        return "resource";
+    }
+
+    /**
+     * Where saveCallResult() runs, diskIO() unless overridden. A saveCallResult() that does more
+     * than write, e.g. decodes a streamed body, should run elsewhere and hand only its writes to
+     * diskIO(), so it doesn't hold up the single writer.
+     */
+    protected PriorityExecutor getSaveExecutor() {
+        return mAppExecutors.diskIO();
+    }
+
     // Called to save the result of the API response into the database.
+    // An IOException (e.g. a streamed body that couldn't be read) is emitted as an ERROR.
     @WorkerThread
-    protected abstract void saveCallResult(@NonNull RequestObject item);
+    protected abstract void saveCallResult(@NonNull RequestObject item) throws IOException;
 
     // Called with the data in the database to decide whether to fetch
     // potentially updated data from the network.
@@ -160,4 +419,28 @@ public abstract class NetworkBoundResource<CacheObject, RequestObject> {
     public final LiveData<Resource<CacheObject>> getAsLiveData(){
         return results;
     };
+
+    private class ResultLiveData extends MediatorLiveData<Resource<CacheObject>>
+            implements Cancellable, Retryable, Prioritized {
+
+        @Override
+        public void cancel() {
+            NetworkBoundResource.this.cancel();
+        }
+
+        @Override
+        public void setPriority(Priority priority) {
+            NetworkBoundResource.this.setPriority(priority);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        @Override
+        public void retry() {
+            NetworkBoundResource.this.retry();
+        }
+    }
 }
@@ -0,0 +1,13 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.support.annotation.MainThread;
+
+/**
+ * Implemented by the LiveData objects whose work is scheduled by priority. setPriority() also moves
+ * the work that is still queued, e.g. when the screen showing it comes back to the foreground.
+ */
+public interface Prioritized {
+
+    @MainThread
+    void setPriority(Priority priority);
+}
@@ -0,0 +1,23 @@
+package com.codingwithmitch.foodrecipes.util;
+
+/**
+ * How urgent a task is. PriorityExecutor runs queued tasks in this order (highest first), tasks of
+ * the same priority in the order they were submitted.
+ */
+public enum Priority {
+
+    /**
+     * The user is waiting for it and nothing else is on screen, e.g. opening a recipe.
+     */
+    USER_BLOCKING,
+
+    /**
+     * Its result is going to be shown, e.g. the next page of a search. This is the default.
+     */
+    USER_VISIBLE,
+
+    /**
+     * Nobody is waiting for it: prefetching, cache maintenance, screens that aren't visible.
+     */
+    BACKGROUND
+}
@@ -19,16 +19,32 @@ public class Resource<T> {
     @Nullable
     public final String message;
 
+    /**
+     * True if the data is from the cache and is being refreshed in the background
+     * (see FetchPolicy.STALE_WHILE_REVALIDATE). A fresh SUCCESS follows.
+     */
+    public final boolean stale;
+
     public Resource(@NonNull Status status, @Nullable T data, @Nullable String message) {
+        this(status, data, message, false);
+    }
+
+    public Resource(@NonNull Status status, @Nullable T data, @Nullable String message,
+            boolean stale) {
         this.status = status;
         this.data = data;
         this.message = message;
+        this.stale = stale;
     }
 
     public static <T> Resource<T> success(@NonNull T data) {
         return new Resource<>(Status.SUCCESS, data, null);
     }
 
+    public static <T> Resource<T> stale(@NonNull T data) {
+        return new Resource<>(Status.SUCCESS, data, null, true);
+    }
+
     public static <T> Resource<T> error(@NonNull String msg, @Nullable T data) {
         return new Resource<>(Status.ERROR, data, msg);
     }
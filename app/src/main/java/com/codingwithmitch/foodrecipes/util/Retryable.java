@@ -0,0 +1,13 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.support.annotation.MainThread;
+
+/**
+ * Implemented by the LiveData objects that are backed by a network request. A request that failed is
+ * never repeated on its own, retry() has to be called.
+ */
+public interface Retryable {
+
+    @MainThread
+    void retry();
+}
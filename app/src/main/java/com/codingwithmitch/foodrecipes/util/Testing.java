@@ -2,14 +2,14 @@ package com.codingwithmitch.foodrecipes.util;
 
 import android.util.Log;
 
-import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
 
 import java.util.List;
 
 public class Testing {
 
-    public static void printRecipes(List<Recipe>list, String tag){
-        for(Recipe recipe: list){
+    public static void printRecipes(List<RecipeSummary>list, String tag){
+        for(RecipeSummary recipe: list){
             Log.d(tag, "onChanged: " + recipe.getTitle());
         }
     }
@@ -0,0 +1,72 @@
+package com.codingwithmitch.foodrecipes.viewmodels;
+
+/**
+ * How many items before the end of the list the next page should start loading.
+ *
+ * That's the number of items the user scrolls past while a page loads: scroll speed (items per ms)
+ * times page load time (ms), with some margin. Both are moving averages, so a slow network or a
+ * fast fling moves the trigger further up the list. Clamped to [minDistance, maxDistance].
+ */
+class PrefetchDistance {
+
+    // weight of a new sample in the moving averages
+    private static final double SMOOTHING = 0.3;
+
+    // load the page a bit earlier than the averages say, pages don't always take the average time
+    private static final double MARGIN = 1.5;
+
+    // a gap this long between scroll events means the list was at rest, start measuring again
+    private static final long SCROLL_RESET_MS = 500;
+
+    private final int mMinDistance;
+    private final int mMaxDistance;
+
+    private double mLoadMillis;
+    private double mItemsPerMilli;
+
+    private int mLastPosition = -1;
+    private long mLastScrollMillis;
+
+    /**
+     * @param initialLoadMillis page load time assumed until one was measured
+     */
+    PrefetchDistance(int minDistance, int maxDistance, long initialLoadMillis) {
+        mMinDistance = minDistance;
+        mMaxDistance = maxDistance;
+        mLoadMillis = initialLoadMillis;
+    }
+
+    void onPageLoaded(long loadMillis) {
+        mLoadMillis += SMOOTHING * (loadMillis - mLoadMillis);
+    }
+
+    /**
+     * @param lastVisiblePosition adapter position of the last visible item
+     * @param nowMillis e.g. SystemClock.uptimeMillis()
+     */
+    void onScrolled(int lastVisiblePosition, long nowMillis) {
+        long elapsed = nowMillis - mLastScrollMillis;
+        if(mLastPosition < 0 || elapsed > SCROLL_RESET_MS) {
+            mItemsPerMilli = 0;
+        } else if(elapsed > 0) {
+            // only scrolling towards the end counts
+            double itemsPerMilli = Math.max(0, lastVisiblePosition - mLastPosition) / (double) elapsed;
+            mItemsPerMilli += SMOOTHING * (itemsPerMilli - mItemsPerMilli);
+        }
+        mLastPosition = lastVisiblePosition;
+        mLastScrollMillis = nowMillis;
+    }
+
+    /**
+     * Forgets the scroll position, e.g. for a new search.
+     */
+    void reset() {
+        mLastPosition = -1;
+        mItemsPerMilli = 0;
+    }
+
+    int get() {
+        int distance = (int) Math.ceil(mItemsPerMilli * mLoadMillis * MARGIN);
+        return Math.max(mMinDistance, Math.min(mMaxDistance, distance));
+    }
+}
@@ -6,22 +6,28 @@ import android.arch.lifecycle.AndroidViewModel;
 import android.arch.lifecycle.LiveData;
 import android.arch.lifecycle.MediatorLiveData;
 import android.arch.lifecycle.MutableLiveData;
-import android.arch.lifecycle.Observer;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
-import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
+import com.codingwithmitch.foodrecipes.persistence.SearchCursor;
+import com.codingwithmitch.foodrecipes.repository.RecipePrefetcher;
 import com.codingwithmitch.foodrecipes.repository.RecipeRepository;
+import com.codingwithmitch.foodrecipes.util.Constants;
+import com.codingwithmitch.foodrecipes.util.FetchPolicy;
+import com.codingwithmitch.foodrecipes.util.Priority;
 import com.codingwithmitch.foodrecipes.util.Resource;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class RecipeListViewModel extends AndroidViewModel {
 
     private static final String TAG = "RecipeListViewModel";
 
-    public static final String NO_MORE_RESULTS = "NO_MORE_RESULTS";
+    public static final String NO_MORE_RESULTS = SearchPager.NO_MORE_RESULTS;
 
     /**
      * Same as using public state final int CATEGORY = 1, etc.
@@ -42,21 +48,51 @@ public class RecipeListViewModel extends AndroidViewModel {
      * We want to alter the LiveData returned from the request before displaying it in the UI
      * which is why we're using MediatorLiveData
      */
-    public MediatorLiveData<Resource<List<Recipe>>> mRecipes = new MediatorLiveData<>();
+    public MediatorLiveData<Resource<List<RecipeSummary>>> mRecipes = new MediatorLiveData<>();
 
     private RecipeRepository mRecipeRepository;
 
     //Query Extras
-    private boolean mIsQueryExhausted;
-    private boolean mIsPerformingQuery;
-    private int mPageNumber;
     private String mQuery;
-    private boolean mCancelRequest;
-    private long mRequestStartTime;
+    private int mPageSize = Constants.SEARCH_PAGE_SIZE;
+    private FetchPolicy mFetchPolicy = FetchPolicy.CACHE_FIRST;
+    private Priority mPriority = Priority.USER_VISIBLE;
+
+    // Loads the pages of the current query, a few ahead of the one on screen
+    private SearchPager mSearchPager;
+
+    // How close to the end of the list the next page is asked for
+    private PrefetchDistance mPrefetchDistance = new PrefetchDistance(
+            Constants.SEARCH_PREFETCH_MIN_DISTANCE, Constants.SEARCH_PREFETCH_MAX_DISTANCE,
+            Constants.SEARCH_PAGE_LOAD_ESTIMATE);
+
+    // Loads the details of the recipes on screen before they are tapped
+    private RecipePrefetcher mRecipePrefetcher;
+
+    // Recipes on screen are pinned so the cache doesn't evict them
+    private List<String> mPinnedRecipeIds = new ArrayList<>();
 
     public RecipeListViewModel(@NonNull Application application) {
         super(application);
         mRecipeRepository = RecipeRepository.getInstance(application);
+        mSearchPager = new SearchPager(mRecipes, new SearchPager.PageLoader() {
+            @NonNull
+            @Override
+            public LiveData<Resource<List<RecipeSummary>>> load(int pageNumber,
+                    @Nullable SearchCursor after, Priority priority) {
+                return mRecipeRepository.searchRecipesApi(mQuery, pageNumber, after, mPageSize,
+                        mFetchPolicy, priority);
+            }
+        }, Constants.SEARCH_PAGES_AHEAD);
+        mRecipePrefetcher = new RecipePrefetcher(mRecipeRepository,
+                Constants.RECIPE_PREFETCH_MAX_IN_FLIGHT, RecipeViewModel.DEFAULT_FETCH_POLICY);
+        mSearchPager.setPageListener(new SearchPager.PageListener() {
+            @Override
+            public void onPageLoaded(int pageNumber, List<RecipeSummary> recipes, long loadMillis) {
+                pinRecipes(recipes);
+                mPrefetchDistance.onPageLoaded(loadMillis);
+            }
+        });
         init();
     }
 
@@ -71,83 +107,113 @@ public class RecipeListViewModel extends AndroidViewModel {
         return viewState;
     }
 
-    public LiveData<Resource<List<Recipe>>> getRecipes() {
+    public LiveData<Resource<List<RecipeSummary>>> getRecipes() {
         return mRecipes;
     }
 
     public int getPageNumber() {
-        return mPageNumber;
+        return mSearchPager.getPageNumber();
+    }
+
+    public void setPageSize(int pageSize) {
+        mPageSize = pageSize;
+    }
+
+    public void setFetchPolicy(FetchPolicy fetchPolicy) {
+        mFetchPolicy = fetchPolicy;
+    }
+
+    /**
+     * Number of pages loaded ahead of the one the user is waiting for. 0 loads one page at a time.
+     */
+    public void setPagesAhead(int pagesAhead) {
+        mSearchPager.setPagesAhead(pagesAhead);
+    }
+
+    /**
+     * Pages load as USER_VISIBLE while the list is on screen and as BACKGROUND while it isn't. Also
+     * moves the pages that are loading right now.
+     */
+    public void setInForeground(boolean inForeground) {
+        mPriority = inForeground ? Priority.USER_VISIBLE : Priority.BACKGROUND;
+        mSearchPager.setPriority(mPriority);
     }
 
     public void setViewCategories() {
+        mRecipePrefetcher.clear();
         viewState.setValue(ViewState.CATEGORIES);
     }
 
     public void searchRecipesApi(String query, int pageNumber) {
-        if(!mIsPerformingQuery) {
-            if(pageNumber == 0) {
-                pageNumber = 1;
-            }
-            this.mPageNumber = pageNumber;
-            this.mQuery = query;
-            mIsQueryExhausted = false;
-            executeSearch();
+        if(pageNumber == 0) {
+            pageNumber = 1;
         }
+        mQuery = query;
+        unpinRecipes();
+        mRecipePrefetcher.clear();
+        mPrefetchDistance.reset();
+        viewState.setValue(ViewState.RECIPES);
+        mSearchPager.setPriority(mPriority);
+        mSearchPager.start(pageNumber);
     }
 
     public void searchNextPage() {
-        if(!mIsQueryExhausted && !mIsPerformingQuery) {
-            mPageNumber++;
-            executeSearch();
+        mSearchPager.loadNextPage();
+    }
+
+    /**
+     * Called by the list while it scrolls. Asks for the next page once the last visible item is
+     * within the prefetch distance of the end, which adapts to the scroll speed and to how long pages
+     * take to load. So the page is usually there before the user gets to the end.
+     * @param lastVisiblePosition adapter position of the last visible item
+     * @param itemCount number of items in the list
+     */
+    public void onListScrolled(int lastVisiblePosition, int itemCount) {
+        mPrefetchDistance.onScrolled(lastVisiblePosition, SystemClock.uptimeMillis());
+        if(viewState.getValue() == ViewState.RECIPES && lastVisiblePosition >= 0
+                && itemCount - 1 - lastVisiblePosition <= mPrefetchDistance.get()) {
+            searchNextPage();
         }
     }
 
-    private void executeSearch() {
-        mRequestStartTime = System.currentTimeMillis();
-        mCancelRequest = false;
-        mIsPerformingQuery = true;
-        viewState.setValue(ViewState.RECIPES);
-        final LiveData<Resource<List<Recipe>>> repositorySource = mRecipeRepository.searchRecipesApi(mQuery, mPageNumber);
-        mRecipes.addSource(repositorySource, new Observer<Resource<List<Recipe>>>() {
-            @Override
-            public void onChanged(@Nullable Resource<List<Recipe>> listResource) {
-                // We can do some stuff to the data before returning it to the UI
-                if(!mCancelRequest) {
-                    if(listResource != null) {
-                        mRecipes.setValue(listResource);
-                        if(listResource.status == Resource.Status.SUCCESS) {
-                            Log.i(TAG, "onChanged REQUEST TIME: "+ (System.currentTimeMillis() - mRequestStartTime)/1000+" secs");
-                            mIsPerformingQuery = false;
-                            if(listResource.data != null) {
-                                if(listResource.data.size() == 0) {
-                                    Log.i(TAG, "onChanged: query is exhausted");
-                                    mRecipes.setValue(new Resource<List<Recipe>>(Resource.Status.ERROR
-                                            , listResource.data, NO_MORE_RESULTS));
-                                }
-                            }
-                            mRecipes.removeSource(repositorySource);
-                        } else if(listResource.status == Resource.Status.ERROR) {
-                            mIsPerformingQuery = false;
-                            mRecipes.removeSource(repositorySource);
-                        }
-                    } else {
-                        // We have to remove source otherwise we keep pushing to observers!
-                        mRecipes.removeSource(repositorySource);
-                    }
-                } else {
-                    mRecipes.removeSource(repositorySource);
-                }
-            }
-        });
+    /**
+     * Called by the list when it settles. The details of these recipes are loaded in the background
+     * so opening one doesn't have to wait for the network, the ones no longer visible are cancelled.
+     * @param recipeIds the recipes on screen, in list order
+     */
+    public void setVisibleRecipes(List<String> recipeIds) {
+        if(viewState.getValue() == ViewState.RECIPES) {
+            mRecipePrefetcher.setVisibleRecipes(recipeIds);
+        }
+    }
+
+    private void pinRecipes(List<RecipeSummary> page) {
+        List<String> ids = new ArrayList<>(page.size());
+        for(RecipeSummary recipe: page) {
+            ids.add(recipe.getRecipe_id());
+        }
+        mRecipeRepository.pinRecipes(ids);
+        mPinnedRecipeIds.addAll(ids);
+    }
+
+    private void unpinRecipes() {
+        mRecipeRepository.unpinRecipes(mPinnedRecipeIds);
+        mPinnedRecipeIds.clear();
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        mRecipePrefetcher.clear();
+        unpinRecipes();
     }
 
     public void cancelSearchRequest() {
-        if(mIsPerformingQuery) {
+        if(mSearchPager.isLoading()) {
             Log.i(TAG, "Canceling Search Query");
-            mCancelRequest = true;
-            mIsPerformingQuery = false;
-            mPageNumber = 1;
         }
+        // stops the network calls too, not just the updates
+        mSearchPager.cancel();
     }
 }
 
@@ -5,24 +5,65 @@ import android.app.Application;
 import android.arch.lifecycle.AndroidViewModel;
 import android.arch.lifecycle.LiveData;
 import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
 
 import com.codingwithmitch.foodrecipes.models.Recipe;
 import com.codingwithmitch.foodrecipes.repository.RecipeRepository;
+import com.codingwithmitch.foodrecipes.util.FetchPolicy;
 import com.codingwithmitch.foodrecipes.util.Resource;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 
 public class RecipeViewModel extends AndroidViewModel {
 
+    // Show the cached recipe right away and refresh it in the background if it's old
+    public static final FetchPolicy DEFAULT_FETCH_POLICY = FetchPolicy.STALE_WHILE_REVALIDATE;
+
     private RecipeRepository mRecipeRepository;
 
+    private FetchPolicy mFetchPolicy = DEFAULT_FETCH_POLICY;
+
+    // The recipe on screen is pinned so the cache doesn't evict it
+    private List<String> mPinnedRecipeIds = new ArrayList<>();
+
+    // Released in onCleared(), which cancels the requests nobody else needs
+    private List<LiveData<Resource<Recipe>>> mRecipes = new ArrayList<>();
+
 
     public RecipeViewModel(@NonNull Application application) {
+        this(application, RecipeRepository.getInstance(application));
+    }
+
+    @VisibleForTesting
+    RecipeViewModel(@NonNull Application application, RecipeRepository recipeRepository) {
         super(application);
-        mRecipeRepository = RecipeRepository.getInstance(application);
+        mRecipeRepository = recipeRepository;
     }
 
     public LiveData<Resource<Recipe>> searchRecipeAPi(String recipeId) {
-        return mRecipeRepository.searchRecipeApi(recipeId);
+        mRecipeRepository.pinRecipes(Collections.singletonList(recipeId));
+        mPinnedRecipeIds.add(recipeId);
+        LiveData<Resource<Recipe>> recipe = mRecipeRepository.searchRecipeApi(recipeId, mFetchPolicy);
+        mRecipes.add(recipe);
+        return recipe;
+    }
+
+    public void setFetchPolicy(FetchPolicy fetchPolicy) {
+        mFetchPolicy = fetchPolicy;
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        mRecipeRepository.unpinRecipes(mPinnedRecipeIds);
+        mPinnedRecipeIds.clear();
+        for(LiveData<Resource<Recipe>> recipe: mRecipes) {
+            mRecipeRepository.releaseRecipe(recipe);
+        }
+        mRecipes.clear();
     }
 }
 
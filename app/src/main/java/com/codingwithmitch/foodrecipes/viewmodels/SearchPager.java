@@ -0,0 +1,373 @@
+package com.codingwithmitch.foodrecipes.viewmodels;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
+import android.arch.lifecycle.Observer;
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.codingwithmitch.foodrecipes.models.RecipeSummary;
+import com.codingwithmitch.foodrecipes.persistence.SearchCursor;
+import com.codingwithmitch.foodrecipes.util.Cancellable;
+import com.codingwithmitch.foodrecipes.util.Prioritized;
+import com.codingwithmitch.foodrecipes.util.Priority;
+import com.codingwithmitch.foodrecipes.util.Resource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Loads the pages of one search with several pages in flight at a time.
+ *
+ * The "wanted" page is the last one the user asked for (start() and loadNextPage()). Besides it, up
+ * to pagesAhead pages after it are requested right away, as BACKGROUND, so they are usually done
+ * by the time the user gets to them. Pages can finish in any order: the result only ever contains
+ * the pages up to the wanted one, in page order, and a page that finished early is held until the
+ * user asks for it.
+ *
+ * A recipe that is on more than one page (the API's pages shift when its ranking changes) is only
+ * shown the first time.
+ *
+ * The first page that comes back empty is the end of the results. Nothing after it is requested
+ * anymore and the pages after it that are still in flight are cancelled. Once the user gets to it
+ * the result is an ERROR with NO_MORE_RESULTS.
+ *
+ * Results are set on the MediatorLiveData passed in: LOADING until the wanted page has data, a
+ * stale SUCCESS while it refreshes, then SUCCESS, or ERROR if it failed (loadNextPage() retries it).
+ */
+public class SearchPager {
+    private static final String TAG = "SearchPager";
+
+    public static final String NO_MORE_RESULTS = "NO_MORE_RESULTS";
+
+    /**
+     * Creates the request of one page, e.g. RecipeRepository.searchRecipesApi().
+     */
+    public interface PageLoader {
+        @NonNull @MainThread
+        LiveData<Resource<List<RecipeSummary>>> load(int pageNumber, @Nullable SearchCursor after,
+                Priority priority);
+    }
+
+    /**
+     * Told about every page that finished loading, including the ones that are held.
+     */
+    public interface PageListener {
+        /**
+         * @param loadMillis time from requesting the page until it was done
+         */
+        @MainThread
+        void onPageLoaded(int pageNumber, List<RecipeSummary> recipes, long loadMillis);
+    }
+
+    private final MediatorLiveData<Resource<List<RecipeSummary>>> mResult;
+    private final PageLoader mPageLoader;
+    private PageListener mPageListener;
+
+    private int mPagesAhead;
+    private Priority mPriority = Priority.USER_VISIBLE;
+
+    // every page of the current search that was requested, by page number
+    private final TreeMap<Integer, Page> mPages = new TreeMap<>();
+    private int mFirstPage;
+    private int mWantedPage;
+    // the first empty page
+    private int mExhaustedAt = Integer.MAX_VALUE;
+    private boolean mStarted;
+
+    /**
+     * @param result where the pages are published
+     * @param pagesAhead number of pages requested after the one the user is waiting for
+     */
+    public SearchPager(MediatorLiveData<Resource<List<RecipeSummary>>> result, PageLoader pageLoader,
+            int pagesAhead) {
+        mResult = result;
+        mPageLoader = pageLoader;
+        mPagesAhead = pagesAhead;
+    }
+
+    public void setPageListener(@Nullable PageListener pageListener) {
+        mPageListener = pageListener;
+    }
+
+    /**
+     * If the window grew the extra pages are requested right away.
+     */
+    @MainThread
+    public void setPagesAhead(int pagesAhead) {
+        mPagesAhead = pagesAhead;
+        if(mStarted) {
+            fill();
+        }
+    }
+
+    /**
+     * Starts over from firstPage. Whatever is still in flight for the previous search is cancelled.
+     */
+    @MainThread
+    public void start(int firstPage) {
+        cancel();
+        mPages.clear();
+        mFirstPage = firstPage;
+        mWantedPage = firstPage;
+        mExhaustedAt = Integer.MAX_VALUE;
+        mStarted = true;
+        fill();
+        publish();
+    }
+
+    /**
+     * The user wants to see the page after the wanted one. Does nothing until the wanted page is done
+     * (it's still loading) or if there are no more pages. If the wanted page failed it is requested
+     * again instead.
+     */
+    @MainThread
+    public void loadNextPage() {
+        if(!mStarted || isExhausted()) {
+            return;
+        }
+        Page wanted = mPages.get(mWantedPage);
+        if(wanted == null || wanted.mFailed) {
+            Log.i(TAG, "loadNextPage: retrying page " + mWantedPage);
+            mPages.remove(mWantedPage);
+        } else if(!wanted.mDone) {
+            return;
+        } else {
+            mWantedPage++;
+            Page next = mPages.get(mWantedPage);
+            if(next != null && next.mFailed) {
+                // failed while it was ahead, the user is waiting for it now so try again
+                mPages.remove(mWantedPage);
+            }
+        }
+        fill();
+        publish();
+    }
+
+    /**
+     * Priority of the pages up to the wanted one, the pages ahead of it are always BACKGROUND.
+     */
+    @MainThread
+    public void setPriority(Priority priority) {
+        mPriority = priority;
+        for(Page page: mPages.values()) {
+            if(page.isInFlight()) {
+                page.setPriority(priorityOf(page.mNumber));
+            }
+        }
+    }
+
+    /**
+     * Cancels every page in flight. They are requested again by the next loadNextPage().
+     */
+    @MainThread
+    public void cancel() {
+        for(Integer pageNumber: new ArrayList<>(mPages.keySet())) {
+            Page page = mPages.get(pageNumber);
+            if(page.isInFlight()) {
+                // removed first, cancelling can emit the cancelled ERROR right away
+                mPages.remove(pageNumber);
+                mResult.removeSource(page.mSource);
+                page.cancel();
+            }
+        }
+    }
+
+    public int getPageNumber() {
+        return mWantedPage;
+    }
+
+    /**
+     * @return true if the user got to the end of the results
+     */
+    public boolean isExhausted() {
+        return mWantedPage >= mExhaustedAt;
+    }
+
+    /**
+     * @return true if the user is waiting for the wanted page
+     */
+    public boolean isLoading() {
+        Page wanted = mPages.get(mWantedPage);
+        return mStarted && (wanted == null || (!wanted.mDone && !wanted.mFailed));
+    }
+
+    /**
+     * Requests the wanted page and the pages ahead of it that weren't requested yet, and raises the
+     * priority of the ones the user is now waiting for.
+     */
+    private void fill() {
+        for(int pageNumber = mWantedPage; pageNumber <= mWantedPage + mPagesAhead; pageNumber++) {
+            // checked every time, a cached page can finish (and turn out empty) right away
+            if(pageNumber > mExhaustedAt) {
+                break;
+            }
+            Page page = mPages.get(pageNumber);
+            if(page == null) {
+                request(pageNumber);
+            } else if(page.isInFlight()) {
+                page.setPriority(priorityOf(pageNumber));
+            }
+        }
+    }
+
+    private void request(int pageNumber) {
+        final Page page = new Page(pageNumber, priorityOf(pageNumber));
+        page.mSource = mPageLoader.load(pageNumber, cursorBefore(pageNumber), page.mPriority);
+        mPages.put(pageNumber, page);
+        mResult.addSource(page.mSource, new Observer<Resource<List<RecipeSummary>>>() {
+            @Override
+            public void onChanged(@Nullable Resource<List<RecipeSummary>> resource) {
+                onPageChanged(page, resource);
+            }
+        });
+    }
+
+    private void onPageChanged(Page page, @Nullable Resource<List<RecipeSummary>> resource) {
+        if(mPages.get(page.mNumber) != page) {
+            // cancelled or replaced by a retry
+            mResult.removeSource(page.mSource);
+            return;
+        }
+        if(resource == null) {
+            return;
+        }
+        switch (resource.status) {
+            case SUCCESS: {
+                page.mData = resource.data;
+                if(resource.stale) {
+                    // shown already, wait for the refreshed page before moving on
+                    break;
+                }
+                page.mDone = true;
+                mResult.removeSource(page.mSource);
+                if(resource.data == null || resource.data.isEmpty()) {
+                    onExhausted(page.mNumber);
+                } else if(mPageListener != null) {
+                    mPageListener.onPageLoaded(page.mNumber, resource.data,
+                            SystemClock.elapsedRealtime() - page.mRequestedAt);
+                }
+                break;
+            }
+            case ERROR: {
+                page.mData = resource.data;
+                page.mFailed = true;
+                page.mError = resource.message;
+                mResult.removeSource(page.mSource);
+                break;
+            }
+            default: {
+                // still loading, the cached data it may have isn't shown until it's done
+                return;
+            }
+        }
+        publish();
+    }
+
+    private void onExhausted(int pageNumber) {
+        if(pageNumber >= mExhaustedAt) {
+            return;
+        }
+        Log.i(TAG, "onExhausted: no results after page " + (pageNumber - 1));
+        mExhaustedAt = pageNumber;
+        for(Integer later: new ArrayList<>(mPages.tailMap(pageNumber, false).keySet())) {
+            Page page = mPages.remove(later);
+            if(page.isInFlight()) {
+                mResult.removeSource(page.mSource);
+                page.cancel();
+            }
+        }
+    }
+
+    /**
+     * Publishes the pages up to the wanted one. Every page before it is done, it only moves on once
+     * the wanted page is.
+     */
+    private void publish() {
+        List<RecipeSummary> recipes = new ArrayList<>();
+        Set<String> recipeIds = new HashSet<>();
+        for(int pageNumber = mFirstPage; pageNumber <= mWantedPage; pageNumber++) {
+            Page page = mPages.get(pageNumber);
+            List<RecipeSummary> data = page != null ? page.mData : null;
+            if(data == null) {
+                break;
+            }
+            for(RecipeSummary recipe: data) {
+                if(recipeIds.add(recipe.getRecipe_id())) {
+                    recipes.add(recipe);
+                }
+            }
+        }
+
+        Page wanted = mPages.get(mWantedPage);
+        if(wanted == null) {
+            mResult.setValue(Resource.loading(recipes));
+        } else if(wanted.mDone && isExhausted()) {
+            mResult.setValue(Resource.error(NO_MORE_RESULTS, recipes));
+        } else if(wanted.mDone) {
+            mResult.setValue(Resource.success(recipes));
+        } else if(wanted.mFailed) {
+            mResult.setValue(Resource.error(wanted.mError, recipes));
+        } else if(wanted.mData != null) {
+            mResult.setValue(Resource.stale(recipes));
+        } else {
+            mResult.setValue(Resource.loading(recipes));
+        }
+    }
+
+    /**
+     * Cursor after the page right before, once it is done. A page ahead is usually requested before
+     * that, it gets no cursor and the repository finds it by its number instead. A cursor from a page
+     * further back would give it the recipes of that earlier page again.
+     */
+    @Nullable
+    private SearchCursor cursorBefore(int pageNumber) {
+        Page previous = mPages.get(pageNumber - 1);
+        return previous != null && previous.mDone ? SearchCursor.after(previous.mData) : null;
+    }
+
+    private Priority priorityOf(int pageNumber) {
+        return pageNumber <= mWantedPage ? mPriority : Priority.BACKGROUND;
+    }
+
+    private static class Page {
+        final int mNumber;
+        final long mRequestedAt = SystemClock.elapsedRealtime();
+        Priority mPriority;
+        LiveData<Resource<List<RecipeSummary>>> mSource;
+
+        // the stale data while it refreshes, then the page
+        List<RecipeSummary> mData;
+        boolean mDone;
+        boolean mFailed;
+        String mError;
+
+        Page(int number, Priority priority) {
+            mNumber = number;
+            mPriority = priority;
+        }
+
+        boolean isInFlight() {
+            return !mDone && !mFailed;
+        }
+
+        void setPriority(Priority priority) {
+            if(priority != mPriority && mSource instanceof Prioritized) {
+                ((Prioritized) mSource).setPriority(priority);
+            }
+            mPriority = priority;
+        }
+
+        void cancel() {
+            if(mSource instanceof Cancellable) {
+                ((Cancellable) mSource).cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.codingwithmitch.foodrecipes.persistence;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConvertersTest {
+
+    @Test
+    public void fromString_nullOrEmpty_returnsNull() {
+        assertNull(Converters.fromString(null));
+        assertNull(Converters.fromString(""));
+    }
+
+    @Test
+    public void fromString_roundTrip() {
+        String[] ingredients = {"2 cups flour", "1 egg"};
+        assertArrayEquals(ingredients, Converters.fromString(Converters.fromArrayList(ingredients)));
+    }
+}
@@ -0,0 +1,177 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerTest {
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final int OPEN_TIME = 30; // seconds
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private MockWebServer mServer;
+    private FakeClockCircuitBreaker mCircuitBreaker;
+    private OkHttpClient mClient;
+
+    // what the server answers, and the state of the breaker while it was answering
+    private volatile int mResponseCode = 200;
+    private volatile CircuitBreaker.State mStateDuringRequest;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                mStateDuringRequest = mCircuitBreaker.getCurrentState();
+                return new MockResponse().setResponseCode(mResponseCode);
+            }
+        });
+        mServer.start();
+        mCircuitBreaker = new FakeClockCircuitBreaker(FAILURE_THRESHOLD, OPEN_TIME);
+        mClient = new OkHttpClient.Builder()
+                .addInterceptor(new CircuitBreakerInterceptor(mCircuitBreaker))
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void failuresInARow_openTheCircuit() throws IOException {
+        mResponseCode = 500;
+        for(int i = 0; i < FAILURE_THRESHOLD - 1; i++) {
+            execute();
+            assertEquals(CircuitBreaker.State.CLOSED, mCircuitBreaker.getCurrentState());
+        }
+        execute();
+
+        assertEquals(CircuitBreaker.State.OPEN, mCircuitBreaker.getCurrentState());
+        assertEquals(CircuitBreaker.State.OPEN, mCircuitBreaker.getState().getValue());
+    }
+
+    @Test
+    public void success_resetsTheFailureCount() throws IOException {
+        mResponseCode = 500;
+        for(int i = 0; i < FAILURE_THRESHOLD - 1; i++) {
+            execute();
+        }
+        mResponseCode = 200;
+        execute();
+        mResponseCode = 500;
+        execute();
+
+        assertEquals(CircuitBreaker.State.CLOSED, mCircuitBreaker.getCurrentState());
+    }
+
+    @Test
+    public void open_failsFastWithoutCallingTheServer() throws IOException {
+        open();
+        int requests = mServer.getRequestCount();
+
+        try {
+            execute();
+            fail("the circuit is open");
+        } catch (CircuitBreakerInterceptor.CircuitOpenException expected) {
+        }
+
+        assertEquals(requests, mServer.getRequestCount());
+        assertEquals(1, mCircuitBreaker.getRejectedCount());
+    }
+
+    @Test
+    public void afterOpenTime_probeSucceeds_closes() throws IOException {
+        open();
+        mCircuitBreaker.mNow += OPEN_TIME * 1000L;
+        mResponseCode = 200;
+
+        Response response = execute();
+
+        assertEquals(200, response.code());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mStateDuringRequest);
+        assertEquals(CircuitBreaker.State.CLOSED, mCircuitBreaker.getCurrentState());
+        assertEquals(CircuitBreaker.State.CLOSED, mCircuitBreaker.getState().getValue());
+    }
+
+    @Test
+    public void afterOpenTime_probeFails_opensAgain() throws IOException {
+        open();
+        mCircuitBreaker.mNow += OPEN_TIME * 1000L;
+
+        execute();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mStateDuringRequest);
+        assertEquals(CircuitBreaker.State.OPEN, mCircuitBreaker.getCurrentState());
+
+        // and stays open for another OPEN_TIME
+        mCircuitBreaker.mNow += OPEN_TIME * 1000L - 1;
+        assertFalse(mCircuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void halfOpen_onlyOneProbeAtATime() {
+        mCircuitBreaker = new FakeClockCircuitBreaker(1, OPEN_TIME);
+        assertTrue(mCircuitBreaker.allowRequest());
+        mCircuitBreaker.onFailure();
+        mCircuitBreaker.mNow += OPEN_TIME * 1000L;
+
+        assertTrue(mCircuitBreaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mCircuitBreaker.getCurrentState());
+        assertFalse(mCircuitBreaker.allowRequest());
+
+        mCircuitBreaker.onSuccess();
+        assertTrue(mCircuitBreaker.allowRequest());
+    }
+
+    private void open() throws IOException {
+        mResponseCode = 500;
+        for(int i = 0; i < FAILURE_THRESHOLD; i++) {
+            execute();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, mCircuitBreaker.getCurrentState());
+    }
+
+    private Response execute() throws IOException {
+        Response response = mClient.newCall(new Request.Builder()
+                .url(mServer.url("/api/search?q=chicken"))
+                .build()).execute();
+        response.close();
+        return response;
+    }
+
+    private static class FakeClockCircuitBreaker extends CircuitBreaker {
+        volatile long mNow = 1000000;
+
+        FakeClockCircuitBreaker(int failureThreshold, int openTime) {
+            super(failureThreshold, openTime);
+        }
+
+        @Override
+        protected long now() {
+            return mNow;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.codingwithmitch.foodrecipes.requests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryInterceptorTest {
+
+    private static final long BASE_DELAY_MS = 50;
+
+    private MockWebServer mServer;
+    private RetryInterceptor mRetryInterceptor;
+    private OkHttpClient mClient;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        // always waits the whole backoff, so the waits can be checked
+        Random noJitter = new Random() {
+            @Override
+            public double nextDouble() {
+                return 1.0;
+            }
+        };
+        mRetryInterceptor = new RetryInterceptor(2, BASE_DELAY_MS, 1000, noJitter);
+        mClient = new OkHttpClient.Builder()
+                .addInterceptor(mRetryInterceptor)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void serverError_retriedWithBackoff() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+
+        long start = System.nanoTime();
+        Response response = mClient.newCall(get()).execute();
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(200, response.code());
+        assertEquals("ok", response.body().string());
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(2, mRetryInterceptor.getRetryCount());
+        // BASE_DELAY_MS before the first retry, twice that before the second
+        assertTrue("waited " + elapsedMs + "ms", elapsedMs >= 3 * BASE_DELAY_MS);
+    }
+
+    @Test
+    public void serverError_givesUpAfterMaxRetries() throws IOException {
+        for(int i = 0; i < 4; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        Response response = mClient.newCall(get()).execute();
+
+        assertEquals(503, response.code());
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void tooManyRequests_retried() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(429));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+
+        Response response = mClient.newCall(get()).execute();
+
+        assertEquals(200, response.code());
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void clientError_notRetried() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(404));
+
+        Response response = mClient.newCall(get()).execute();
+
+        assertEquals(404, response.code());
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(0, mRetryInterceptor.getRetryCount());
+    }
+
+    @Test
+    public void post_notRetried() throws IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+
+        Request post = new Request.Builder()
+                .url(mServer.url("/api/search"))
+                .post(RequestBody.create(MediaType.parse("text/plain"), "q=chicken"))
+                .build();
+        Response response = mClient.newCall(post).execute();
+
+        assertEquals(503, response.code());
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(0, mRetryInterceptor.getRetryCount());
+    }
+
+    private Request get() {
+        return new Request.Builder().url(mServer.url("/api/search?q=chicken")).build();
+    }
+}
@@ -0,0 +1,260 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.core.util.Function;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.arch.lifecycle.Observer;
+import android.arch.lifecycle.Transformations;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.PriorityExecutor;
+import com.codingwithmitch.foodrecipes.requests.responses.APIResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that callers asking for the same key while it is in flight share one request.
+ */
+public class InFlightRegistryTest {
+
+    private static final int CALLERS = 8;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private InFlightRegistry<String> mRegistry;
+    private CountingFactory mFactory;
+
+    private AppExecutors mAppExecutors;
+    private MockWebServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mRegistry = new InFlightRegistry<>();
+        mFactory = new CountingFactory();
+
+        mAppExecutors = AppExecutors.getInstance();
+        // real network threads, results delivered right away on the network thread
+        AppExecutors.setInstance(new AppExecutors(new PriorityExecutor("disk-write", 0, 0),
+                new PriorityExecutor("disk-read", 0, 0),
+                new PriorityExecutor("network", 4, 0),
+                new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable runnable) {
+                        runnable.run();
+                    }
+                }));
+        mServer = new MockWebServer();
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+        AppExecutors.setInstance(mAppExecutors);
+    }
+
+    @Test
+    public void sameKeyWhileInFlight_createsOneRequest() {
+        List<RecordingObserver> observers = new ArrayList<>();
+        LiveData<Resource<String>> first = mRegistry.get("chicken|1", Priority.USER_VISIBLE, mFactory);
+        for(int i = 0; i < 5; i++) {
+            LiveData<Resource<String>> shared = mRegistry.get("chicken|1", Priority.USER_VISIBLE,
+                    mFactory);
+            assertSame(first, shared);
+            RecordingObserver observer = new RecordingObserver();
+            shared.observeForever(observer);
+            observers.add(observer);
+        }
+
+        assertEquals(1, mFactory.created.get());
+        assertEquals(1, mFactory.activations.get());
+
+        mFactory.lastCall.setValue(Resource.success("done"));
+        for(RecordingObserver observer: observers) {
+            assertEquals("done", observer.last.data);
+        }
+        assertEquals(0, mRegistry.size());
+    }
+
+    @Test
+    public void overlappingRequests_hitTheServerOnce() throws Exception {
+        // the server answers once every caller asked, so all of them overlap
+        final CountDownLatch allAsked = new CountDownLatch(1);
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                allAsked.await(5, TimeUnit.SECONDS);
+                return new MockResponse().setBody("{}");
+            }
+        });
+        final TestApi api = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addCallAdapterFactory(new LiveDataCallAdapterFactory())
+                .build()
+                .create(TestApi.class);
+        final AtomicInteger created = new AtomicInteger();
+        InFlightRegistry.Factory<String> factory = new InFlightRegistry.Factory<String>() {
+            @NonNull
+            @Override
+            public LiveData<Resource<String>> create() {
+                created.incrementAndGet();
+                return Transformations.map(api.get(),
+                        new Function<APIResponse<ResponseBody>, Resource<String>>() {
+                    @Override
+                    public Resource<String> apply(APIResponse<ResponseBody> response) {
+                        if(response instanceof APIResponse.ApiSuccessResponse) {
+                            ((ResponseBody) ((APIResponse.ApiSuccessResponse) response).getBody()).close();
+                            return Resource.success("done");
+                        }
+                        return Resource.error("failed", null);
+                    }
+                });
+            }
+        };
+
+        final CountDownLatch answered = new CountDownLatch(CALLERS);
+        final List<RecordingObserver> observers = new ArrayList<>();
+        for(int i = 0; i < CALLERS; i++) {
+            RecordingObserver observer = new RecordingObserver() {
+                @Override
+                public void onChanged(@Nullable Resource<String> resource) {
+                    super.onChanged(resource);
+                    answered.countDown();
+                }
+            };
+            observers.add(observer);
+            mRegistry.get("beef|2", Priority.USER_VISIBLE, factory).observeForever(observer);
+        }
+        allAsked.countDown();
+
+        assertTrue(answered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, created.get());
+        for(RecordingObserver observer: observers) {
+            assertEquals("done", observer.last.data);
+        }
+    }
+
+    @Test
+    public void keyIsReleasedWhenDone() {
+        LiveData<Resource<String>> first = mRegistry.get("pasta|1", Priority.USER_VISIBLE, mFactory);
+        first.observeForever(new RecordingObserver());
+        mFactory.lastCall.setValue(Resource.success("done"));
+
+        LiveData<Resource<String>> second = mRegistry.get("pasta|1", Priority.USER_VISIBLE, mFactory);
+        assertNotSame(first, second);
+        assertEquals(2, mFactory.created.get());
+    }
+
+    @Test
+    public void keyIsReleasedWhenCancelled() {
+        LiveData<Resource<String>> first = mRegistry.get("pasta|1", Priority.USER_VISIBLE, mFactory);
+        first.observeForever(new RecordingObserver());
+        ((Cancellable) first).cancel();
+
+        LiveData<Resource<String>> second = mRegistry.get("pasta|1", Priority.USER_VISIBLE, mFactory);
+        assertNotSame(first, second);
+        assertEquals(2, mFactory.created.get());
+    }
+
+    @Test
+    public void release_cancelsOnlyAfterTheLastHolder() {
+        LiveData<Resource<String>> first = mRegistry.get("soup|1", Priority.USER_VISIBLE, mFactory);
+        LiveData<Resource<String>> second = mRegistry.get("soup|1", Priority.USER_VISIBLE, mFactory);
+
+        mRegistry.release(first);
+        assertFalse(mFactory.lastCall.isCancelled());
+        assertEquals(1, mRegistry.size());
+
+        mRegistry.release(second);
+        assertTrue(mFactory.lastCall.isCancelled());
+        assertEquals(0, mRegistry.size());
+    }
+
+    interface TestApi {
+        @GET("recipe")
+        LiveData<APIResponse<ResponseBody>> get();
+    }
+
+    /**
+     * Stands in for a network backed resource, counts every time it becomes active.
+     */
+    private static class FakeCall extends MutableLiveData<Resource<String>> implements Cancellable {
+        private final AtomicInteger mActivations;
+        private boolean mCancelled;
+
+        FakeCall(AtomicInteger activations) {
+            mActivations = activations;
+            setValue(Resource.<String>loading(null));
+        }
+
+        @Override
+        protected void onActive() {
+            super.onActive();
+            mActivations.incrementAndGet();
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+    }
+
+    private static class CountingFactory implements InFlightRegistry.Factory<String> {
+        final AtomicInteger created = new AtomicInteger();
+        // over every FakeCall created
+        final AtomicInteger activations = new AtomicInteger();
+        FakeCall lastCall;
+
+        @NonNull
+        @Override
+        public LiveData<Resource<String>> create() {
+            created.incrementAndGet();
+            lastCall = new FakeCall(activations);
+            return lastCall;
+        }
+    }
+
+    private static class RecordingObserver implements Observer<Resource<String>> {
+        volatile Resource<String> last;
+
+        @Override
+        public void onChanged(@Nullable Resource<String> resource) {
+            last = resource;
+        }
+    }
+}
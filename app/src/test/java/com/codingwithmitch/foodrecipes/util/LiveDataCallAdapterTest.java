@@ -0,0 +1,153 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Observer;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.PriorityExecutor;
+import com.codingwithmitch.foodrecipes.requests.responses.APIResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that calls wait for a network thread by their own Priority. The network pool has one
+ * thread, kept busy until every call is queued.
+ */
+public class LiveDataCallAdapterTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private AppExecutors mAppExecutors;
+    private PriorityExecutor mNetworkIO;
+    private MockWebServer mServer;
+    private TestApi mApi;
+
+    private final CountDownLatch mUnblock = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws IOException {
+        mAppExecutors = AppExecutors.getInstance();
+        // no aging, so only the priority decides
+        mNetworkIO = new PriorityExecutor("network", 1, 0);
+        AppExecutors.setInstance(new AppExecutors(new PriorityExecutor("disk-write", 0, 0),
+                new PriorityExecutor("disk-read", 0, 0),
+                mNetworkIO,
+                new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable runnable) {
+                        runnable.run();
+                    }
+                }));
+        mServer = new MockWebServer();
+        mServer.start();
+        mApi = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addCallAdapterFactory(new LiveDataCallAdapterFactory())
+                .build()
+                .create(TestApi.class);
+
+        mNetworkIO.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mUnblock.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }, Priority.USER_BLOCKING);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mUnblock.countDown();
+        mServer.shutdown();
+        mNetworkIO.shutdownNow();
+        AppExecutors.setInstance(mAppExecutors);
+    }
+
+    @Test
+    public void queuedCalls_runByPriority() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("{}"));
+        mServer.enqueue(new MockResponse().setBody("{}"));
+        CountDownLatch answered = new CountDownLatch(2);
+
+        start("background", Priority.BACKGROUND, answered);
+        start("blocking", Priority.USER_BLOCKING, answered);
+        mUnblock.countDown();
+
+        assertTrue(answered.await(5, TimeUnit.SECONDS));
+        assertEquals("/blocking", mServer.takeRequest().getPath());
+        assertEquals("/background", mServer.takeRequest().getPath());
+    }
+
+    @Test
+    public void setPriority_movesAQueuedCall() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("{}"));
+        mServer.enqueue(new MockResponse().setBody("{}"));
+        CountDownLatch answered = new CountDownLatch(2);
+
+        start("first", Priority.BACKGROUND, answered);
+        LiveData<APIResponse<ResponseBody>> second = start("second", Priority.BACKGROUND, answered);
+        ((Prioritized) second).setPriority(Priority.USER_BLOCKING);
+        mUnblock.countDown();
+
+        assertTrue(answered.await(5, TimeUnit.SECONDS));
+        assertEquals("/second", mServer.takeRequest().getPath());
+        assertEquals("/first", mServer.takeRequest().getPath());
+    }
+
+    @Test
+    public void cancel_whileQueued_neverReachesTheServer() {
+        CountDownLatch answered = new CountDownLatch(1);
+        LiveData<APIResponse<ResponseBody>> call = start("cancelled", Priority.BACKGROUND, answered);
+
+        ((Cancellable) call).cancel();
+
+        assertEquals(0, answered.getCount());
+        assertTrue(call.getValue() instanceof APIResponse.ApiCancelledResponse);
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    private LiveData<APIResponse<ResponseBody>> start(String path, Priority priority,
+            final CountDownLatch answered) {
+        LiveData<APIResponse<ResponseBody>> call = mApi.get(path);
+        ((Prioritized) call).setPriority(priority);
+        call.observeForever(new Observer<APIResponse<ResponseBody>>() {
+            @Override
+            public void onChanged(@Nullable APIResponse<ResponseBody> response) {
+                if(response instanceof APIResponse.ApiSuccessResponse) {
+                    ((ResponseBody) ((APIResponse.ApiSuccessResponse) response).getBody()).close();
+                }
+                answered.countDown();
+            }
+        });
+        return call;
+    }
+
+    interface TestApi {
+        @GET("{path}")
+        LiveData<APIResponse<ResponseBody>> get(@Path("path") String path);
+    }
+}
@@ -0,0 +1,226 @@
+package com.codingwithmitch.foodrecipes.util;
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.arch.lifecycle.Observer;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.AppExecutors;
+import com.codingwithmitch.foodrecipes.requests.responses.APIResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * What each FetchPolicy emits, in order. Everything runs right away on the test thread
+ * (AppExecutors.forTesting()), the db and the network are MutableLiveData.
+ */
+public class NetworkBoundResourceTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private MutableLiveData<String> mDb;
+    private MutableLiveData<APIResponse<String>> mApi;
+    private boolean mShouldFetch;
+    private int mCalls;
+    private IOException mSaveError;
+
+    private List<Resource<String>> mEmitted;
+
+    @Before
+    public void setUp() {
+        mDb = new MutableLiveData<>();
+        mApi = new MutableLiveData<>();
+        mShouldFetch = false;
+        mCalls = 0;
+        mSaveError = null;
+        mEmitted = new ArrayList<>();
+    }
+
+    @Test
+    public void cacheOnly_neverCallsTheNetwork() {
+        mDb.setValue("cached");
+        mShouldFetch = true;
+        observe(FetchPolicy.CACHE_ONLY);
+
+        mDb.setValue("updated");
+        // e.g. another table changed, Room emits the same data again
+        mDb.setValue(new String("updated"));
+
+        assertEquals(0, mCalls);
+        assertEmitted(loading(null), success("cached"), success("updated"));
+    }
+
+    @Test
+    public void networkOnly_ignoresTheCache() {
+        mDb.setValue("cached");
+        observe(FetchPolicy.NETWORK_ONLY);
+        assertEquals(1, mCalls);
+
+        mApi.setValue(apiSuccess("fresh"));
+
+        assertEmitted(loading(null), success("fresh"));
+    }
+
+    @Test
+    public void cacheFirst_freshCache_skipsTheNetwork() {
+        mDb.setValue("cached");
+        observe(FetchPolicy.CACHE_FIRST);
+
+        assertEquals(0, mCalls);
+        assertEmitted(loading(null), success("cached"));
+    }
+
+    @Test
+    public void cacheFirst_oldCache_loadsWithTheCacheThenFetches() {
+        mDb.setValue("cached");
+        mShouldFetch = true;
+        observe(FetchPolicy.CACHE_FIRST);
+        assertEquals(1, mCalls);
+
+        mApi.setValue(apiSuccess("fresh"));
+
+        assertEmitted(loading(null), loading("cached"), success("fresh"));
+    }
+
+    @Test
+    public void staleWhileRevalidate_showsStaleThenFresh() {
+        mDb.setValue("cached");
+        mShouldFetch = true;
+        observe(FetchPolicy.STALE_WHILE_REVALIDATE);
+        assertEquals(1, mCalls);
+
+        mApi.setValue(apiSuccess("fresh"));
+
+        assertEmitted(loading(null), stale("cached"), success("fresh"));
+        assertTrue(mEmitted.get(1).stale);
+        assertFalse(mEmitted.get(2).stale);
+    }
+
+    @Test
+    public void staleWhileRevalidate_unchanged_emitsTheStaleDataOnceAsFresh() {
+        String cached = "cached";
+        mDb.setValue(cached);
+        mShouldFetch = true;
+        observe(FetchPolicy.STALE_WHILE_REVALIDATE);
+
+        mApi.setValue(apiSuccess(new String("cached")));
+        mDb.setValue(new String("cached"));
+
+        assertEmitted(loading(null), stale("cached"), success("cached"));
+        assertSame(cached, mEmitted.get(2).data);
+    }
+
+    @Test
+    public void staleWhileRevalidate_freshCache_skipsTheNetwork() {
+        mDb.setValue("cached");
+        observe(FetchPolicy.STALE_WHILE_REVALIDATE);
+
+        assertEquals(0, mCalls);
+        assertEmitted(loading(null), success("cached"));
+    }
+
+    @Test
+    public void staleWhileRevalidate_emptyCache_waitsForTheNetwork() {
+        mDb.setValue(null);
+        mShouldFetch = true;
+        observe(FetchPolicy.STALE_WHILE_REVALIDATE);
+
+        mApi.setValue(apiSuccess("fresh"));
+
+        assertEmitted(loading(null), loading(null), success("fresh"));
+    }
+
+    @Test
+    public void saveFailure_isAnError() {
+        mDb.setValue("cached");
+        mShouldFetch = true;
+        mSaveError = new IOException("malformed");
+        observe(FetchPolicy.CACHE_FIRST);
+
+        mApi.setValue(apiSuccess("fresh"));
+
+        assertEmitted(loading(null), loading("cached"),
+                new Resource<>(Resource.Status.ERROR, "cached", "malformed"));
+    }
+
+    private void observe(FetchPolicy fetchPolicy) {
+        new NetworkBoundResource<String, String>(AppExecutors.forTesting(), fetchPolicy) {
+            @Override
+            protected void saveCallResult(@NonNull String item) throws IOException {
+                if(mSaveError != null) {
+                    throw mSaveError;
+                }
+                mDb.setValue(item);
+            }
+
+            @Override
+            protected boolean shouldFetch(@Nullable String data) {
+                return mShouldFetch;
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<String> loadFromDb() {
+                return mDb;
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<APIResponse<String>> createCall() {
+                mCalls++;
+                return mApi;
+            }
+        }.getAsLiveData().observeForever(new Observer<Resource<String>>() {
+            @Override
+            public void onChanged(@Nullable Resource<String> resource) {
+                mEmitted.add(resource);
+            }
+        });
+    }
+
+    private void assertEmitted(Resource<?>... expected) {
+        assertEquals(toString(expected), toString(mEmitted.toArray(new Resource<?>[0])));
+    }
+
+    private static String toString(Resource<?>[] resources) {
+        StringBuilder string = new StringBuilder();
+        for(Resource<?> resource: resources) {
+            string.append(resource.status).append(resource.stale ? "(stale)" : "")
+                    .append(' ').append(resource.data)
+                    .append(resource.message != null ? " " + resource.message : "").append('\n');
+        }
+        return string.toString();
+    }
+
+    private static APIResponse<String> apiSuccess(String body) {
+        return new APIResponse<String>().create(Response.success(body));
+    }
+
+    private static Resource<String> loading(@Nullable String data) {
+        return Resource.loading(data);
+    }
+
+    private static Resource<String> success(String data) {
+        return Resource.success(data);
+    }
+
+    private static Resource<String> stale(String data) {
+        return Resource.stale(data);
+    }
+}
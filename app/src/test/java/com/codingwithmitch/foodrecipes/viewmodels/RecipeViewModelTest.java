@@ -0,0 +1,145 @@
+package com.codingwithmitch.foodrecipes.viewmodels;
+
+import android.app.Application;
+import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.arch.lifecycle.Observer;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+import com.codingwithmitch.foodrecipes.repository.RecipeRepository;
+import com.codingwithmitch.foodrecipes.util.Cancellable;
+import com.codingwithmitch.foodrecipes.util.FetchPolicy;
+import com.codingwithmitch.foodrecipes.util.InFlightRegistry;
+import com.codingwithmitch.foodrecipes.util.Priority;
+import com.codingwithmitch.foodrecipes.util.Resource;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that the recipe request of a ViewModel that is cleared is cancelled, unless someone else
+ * still holds it. The repository is a mock backed by a real InFlightRegistry.
+ */
+public class RecipeViewModelTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private final InFlightRegistry<Recipe> mRegistry = new InFlightRegistry<>();
+    private final List<FakeCall> mCalls = new ArrayList<>();
+    private RecipeRepository mRepository;
+
+    @Before
+    public void setUp() {
+        mRepository = mock(RecipeRepository.class);
+        when(mRepository.searchRecipeApi(anyString(), any(FetchPolicy.class))).thenAnswer(
+                new Answer<LiveData<Resource<Recipe>>>() {
+                    @Override
+                    public LiveData<Resource<Recipe>> answer(InvocationOnMock invocation) {
+                        return get((String) invocation.getArgument(0));
+                    }
+                });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                mRegistry.release(invocation.<LiveData<Resource<Recipe>>>getArgument(0));
+                return null;
+            }
+        }).when(mRepository).releaseRecipe(any(LiveData.class));
+    }
+
+    @Test
+    public void clearedViewModel_cancelsItsCall() {
+        RecipeViewModel viewModel = new RecipeViewModel(mock(Application.class), mRepository);
+        viewModel.searchRecipeAPi("41470").observeForever(new NoOpObserver());
+        assertEquals(1, mCalls.size());
+
+        viewModel.onCleared();
+
+        assertTrue(mCalls.get(0).isCancelled());
+        assertEquals(0, mRegistry.size());
+    }
+
+    @Test
+    public void clearedViewModel_keepsCallSomeoneElseHolds() {
+        RecipeViewModel viewModel = new RecipeViewModel(mock(Application.class), mRepository);
+        viewModel.searchRecipeAPi("41470").observeForever(new NoOpObserver());
+        // e.g. the prefetch of the same recipe from the list
+        LiveData<Resource<Recipe>> prefetch = get("41470");
+        assertEquals(1, mCalls.size());
+
+        viewModel.onCleared();
+        assertFalse(mCalls.get(0).isCancelled());
+
+        mRegistry.release(prefetch);
+        assertTrue(mCalls.get(0).isCancelled());
+    }
+
+    @Test
+    public void clearedViewModel_doesNotCancelFinishedCall() {
+        RecipeViewModel viewModel = new RecipeViewModel(mock(Application.class), mRepository);
+        viewModel.searchRecipeAPi("41470").observeForever(new NoOpObserver());
+        mCalls.get(0).setValue(Resource.success(new Recipe()));
+
+        viewModel.onCleared();
+
+        assertFalse(mCalls.get(0).isCancelled());
+    }
+
+    private LiveData<Resource<Recipe>> get(String recipeId) {
+        return mRegistry.get(recipeId, Priority.USER_BLOCKING, new InFlightRegistry.Factory<Recipe>() {
+            @NonNull
+            @Override
+            public LiveData<Resource<Recipe>> create() {
+                FakeCall call = new FakeCall();
+                mCalls.add(call);
+                return call;
+            }
+        });
+    }
+
+    /**
+     * Stands in for the recipe resource and its network call.
+     */
+    private static class FakeCall extends MutableLiveData<Resource<Recipe>> implements Cancellable {
+        private boolean mCancelled;
+
+        FakeCall() {
+            setValue(Resource.<Recipe>loading(null));
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+    }
+
+    private static class NoOpObserver implements Observer<Resource<Recipe>> {
+        @Override
+        public void onChanged(@Nullable Resource<Recipe> resource) {
+        }
+    }
+}
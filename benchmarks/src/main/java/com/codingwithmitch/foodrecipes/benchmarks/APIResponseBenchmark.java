@@ -0,0 +1,83 @@
+package com.codingwithmitch.foodrecipes.benchmarks;
+
+import com.codingwithmitch.foodrecipes.requests.json.RecipeTypeAdapterFactory;
+import com.codingwithmitch.foodrecipes.requests.responses.APIResponse;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * APIResponse.create() for each kind of response: success, empty (204), HTTP error and failure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class APIResponseBenchmark {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final APIResponse<RecipeSearchResponse> mApiResponse = new APIResponse<>();
+
+    private Response<RecipeSearchResponse> mSuccess;
+    private Response<RecipeSearchResponse> mEmpty;
+    private Throwable mFailure;
+
+    @Setup
+    public void setup() throws IOException {
+        RecipeSearchResponse body = RecipeTypeAdapterFactory.create()
+                .fromJson(Payloads.read(Payloads.SEARCH_CHICKEN), RecipeSearchResponse.class);
+        mSuccess = Response.success(body);
+        okhttp3.Response noContent = new okhttp3.Response.Builder()
+                .code(204)
+                .message("No Content")
+                .protocol(Protocol.HTTP_1_1)
+                .request(new Request.Builder().url("https://www.food2fork.com/api/search").build())
+                .build();
+        mEmpty = Response.success(null, noContent);
+        mFailure = new SocketTimeoutException("timeout");
+    }
+
+    @Benchmark
+    public APIResponse<RecipeSearchResponse> success() {
+        return mApiResponse.create(mSuccess);
+    }
+
+    @Benchmark
+    public APIResponse<RecipeSearchResponse> empty() {
+        return mApiResponse.create(mEmpty);
+    }
+
+    @Benchmark
+    public APIResponse<RecipeSearchResponse> httpError() {
+        // the error body is consumed by create(), so it is built on every call
+        return mApiResponse.create(Response.<RecipeSearchResponse>error(500,
+                ResponseBody.create(JSON, "{\"error\": \"server error\"}")));
+    }
+
+    @Benchmark
+    public APIResponse<RecipeSearchResponse> failure() {
+        return mApiResponse.create(mFailure);
+    }
+}
@@ -0,0 +1,172 @@
+package com.codingwithmitch.foodrecipes.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * An on-disk SQLite db with the schema of RecipeDatabase (version 7) and the FTS indexes of
+ * RecipeFts, filled with generated recipes.
+ *
+ * Room and SupportSQLiteDatabase don't run on the JVM, so the DDL is repeated here. Keep it in sync
+ * with the entities, the migrations and RecipeFts.
+ */
+public class BenchmarkDatabase {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE `recipes` (`recipe_id` TEXT NOT NULL, `title` TEXT, `publisher` TEXT, "
+                    + "`image_url` TEXT, `social_rank` REAL NOT NULL, `timestamp` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`recipe_id`))",
+            "CREATE INDEX `index_recipes_social_rank_recipe_id` ON `recipes` (`social_rank`, `recipe_id`)",
+            "CREATE TABLE `ingredients` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`name` TEXT NOT NULL)",
+            "CREATE UNIQUE INDEX `index_ingredients_name` ON `ingredients` (`name`)",
+            "CREATE TABLE `recipe_ingredients` (`recipe_id` TEXT NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`ingredient_id` INTEGER NOT NULL, PRIMARY KEY(`recipe_id`, `position`))",
+            "CREATE INDEX `index_recipe_ingredients_ingredient_id` ON `recipe_ingredients` (`ingredient_id`)",
+            "CREATE TABLE `recipe_access` (`recipe_id` TEXT NOT NULL, `last_accessed` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`recipe_id`))",
+            "CREATE INDEX `index_recipe_access_last_accessed` ON `recipe_access` (`last_accessed`)",
+            "CREATE TABLE `search_results` (`search_query` TEXT NOT NULL, `page` INTEGER NOT NULL, "
+                    + "`position` INTEGER NOT NULL, `recipe_id` TEXT NOT NULL, "
+                    + "`fetched_at` INTEGER NOT NULL, PRIMARY KEY(`search_query`, `page`, `position`))",
+            "CREATE INDEX `index_search_results_recipe_id` ON `search_results` (`recipe_id`)",
+            "CREATE TABLE `search_pages` (`search_query` TEXT NOT NULL, `page` INTEGER NOT NULL, "
+                    + "`fetched_at` INTEGER NOT NULL, `result_count` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`search_query`, `page`))",
+    };
+
+    private static final String[] TITLE_WORDS = {
+            "Chicken", "Beef", "Pork", "Salmon", "Shrimp", "Tofu", "Pasta", "Rice", "Soup", "Salad",
+            "Tacos", "Curry", "Pie", "Cake", "Bread", "Stew", "Chili", "Burger", "Pizza", "Noodles",
+            "Roasted", "Grilled", "Spicy", "Creamy", "Lemon", "Garlic", "Honey", "Smoky", "Easy", "Vegan"
+    };
+
+    private static final String[] INGREDIENT_WORDS = {
+            "chicken breast", "ground beef", "olive oil", "butter", "garlic", "onion", "salt", "pepper",
+            "flour", "sugar", "eggs", "milk", "cream", "parmesan", "cheddar", "tomatoes", "basil",
+            "oregano", "cumin", "paprika", "lemon juice", "soy sauce", "honey", "rice", "pasta",
+            "carrots", "celery", "potatoes", "spinach", "mushrooms", "bell pepper", "jalapeno",
+            "cilantro", "lime", "ginger", "coconut milk", "chicken stock", "beans", "corn", "bacon"
+    };
+
+    public static final int INGREDIENTS_PER_RECIPE = 8;
+
+    public static Connection open(File file) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        // what Room/Android use by default
+        execute(connection, "PRAGMA journal_mode = WAL");
+        execute(connection, "PRAGMA synchronous = NORMAL");
+        execute(connection, "PRAGMA recursive_triggers = ON");
+        return connection;
+    }
+
+    public static File createTempFile() throws IOException {
+        File file = File.createTempFile("recipes", ".db");
+        file.deleteOnExit();
+        return file;
+    }
+
+    public static void create(Connection connection) throws SQLException {
+        for(String sql: SCHEMA) {
+            execute(connection, sql);
+        }
+        createIndex(connection, "recipes_fts", "recipes", "title");
+        createIndex(connection, "ingredients_fts", "ingredients", "name");
+    }
+
+    /**
+     * Same as RecipeFts.createIndex()
+     */
+    private static void createIndex(Connection connection, String fts, String table, String column)
+            throws SQLException {
+        execute(connection, "CREATE VIRTUAL TABLE `" + fts + "` USING fts4(content=`" + table
+                + "`, `" + column + "`)");
+        execute(connection, "CREATE TRIGGER `" + fts + "_bu` BEFORE UPDATE ON `" + table
+                + "` BEGIN DELETE FROM `" + fts + "` WHERE `docid` = old.`rowid`; END");
+        execute(connection, "CREATE TRIGGER `" + fts + "_bd` BEFORE DELETE ON `" + table
+                + "` BEGIN DELETE FROM `" + fts + "` WHERE `docid` = old.`rowid`; END");
+        execute(connection, "CREATE TRIGGER `" + fts + "_au` AFTER UPDATE ON `" + table
+                + "` BEGIN INSERT INTO `" + fts + "`(`docid`, `" + column + "`) "
+                + "VALUES (new.`rowid`, new.`" + column + "`); END");
+        execute(connection, "CREATE TRIGGER `" + fts + "_ai` AFTER INSERT ON `" + table
+                + "` BEGIN INSERT INTO `" + fts + "`(`docid`, `" + column + "`) "
+                + "VALUES (new.`rowid`, new.`" + column + "`); END");
+    }
+
+    /**
+     * Inserts recipeCount generated recipes with their ingredients and access times, in one
+     * transaction. Recipe ids are "r0".."r{recipeCount - 1}". The same seed gives the same data.
+     */
+    public static void populate(Connection connection, int recipeCount, long seed) throws SQLException {
+        Random random = new Random(seed);
+        connection.setAutoCommit(false);
+        PreparedStatement ingredient = connection.prepareStatement(
+                "INSERT OR IGNORE INTO ingredients (name) VALUES (?)");
+        for(String word: INGREDIENT_WORDS) {
+            ingredient.setString(1, word);
+            ingredient.executeUpdate();
+        }
+        ingredient.close();
+
+        PreparedStatement recipe = connection.prepareStatement("INSERT INTO recipes "
+                + "(recipe_id, title, publisher, image_url, social_rank, timestamp) VALUES (?, ?, ?, ?, ?, ?)");
+        PreparedStatement link = connection.prepareStatement("INSERT INTO recipe_ingredients "
+                + "(recipe_id, position, ingredient_id) VALUES (?, ?, ?)");
+        PreparedStatement access = connection.prepareStatement("INSERT INTO recipe_access "
+                + "(recipe_id, last_accessed) VALUES (?, ?)");
+        for(int i = 0; i < recipeCount; i++) {
+            String recipeId = "r" + i;
+            recipe.setString(1, recipeId);
+            recipe.setString(2, title(random));
+            recipe.setString(3, "Publisher " + random.nextInt(50));
+            recipe.setString(4, "http://static.food2fork.com/" + recipeId + ".jpg");
+            recipe.setFloat(5, random.nextFloat() * 100);
+            recipe.setInt(6, 1546300800 + random.nextInt(60 * 60 * 24 * 90));
+            recipe.addBatch();
+            for(int position = 0; position < INGREDIENTS_PER_RECIPE; position++) {
+                link.setString(1, recipeId);
+                link.setInt(2, position);
+                link.setLong(3, 1 + random.nextInt(INGREDIENT_WORDS.length));
+                link.addBatch();
+            }
+            access.setString(1, recipeId);
+            access.setInt(2, 1546300800 + random.nextInt(60 * 60 * 24 * 90));
+            access.addBatch();
+            if(i % 1000 == 999) {
+                recipe.executeBatch();
+                link.executeBatch();
+                access.executeBatch();
+            }
+        }
+        recipe.executeBatch();
+        link.executeBatch();
+        access.executeBatch();
+        recipe.close();
+        link.close();
+        access.close();
+        connection.commit();
+        connection.setAutoCommit(true);
+        execute(connection, "ANALYZE");
+    }
+
+    static String title(Random random) {
+        return TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " "
+                + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " "
+                + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+    }
+
+    static void execute(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            statement.close();
+        }
+    }
+}
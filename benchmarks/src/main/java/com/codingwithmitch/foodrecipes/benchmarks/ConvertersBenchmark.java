@@ -0,0 +1,51 @@
+package com.codingwithmitch.foodrecipes.benchmarks;
+
+import com.codingwithmitch.foodrecipes.persistence.Converters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converters encode/decode of an ingredients array.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertersBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int ingredientCount;
+
+    private String[] mIngredients;
+    private String mJson;
+
+    @Setup
+    public void setup() {
+        mIngredients = Payloads.ingredients(ingredientCount);
+        mJson = Converters.fromArrayList(mIngredients);
+    }
+
+    @Benchmark
+    public String encode() {
+        return Converters.fromArrayList(mIngredients);
+    }
+
+    @Benchmark
+    public String[] decode() {
+        return Converters.fromString(mJson);
+    }
+}
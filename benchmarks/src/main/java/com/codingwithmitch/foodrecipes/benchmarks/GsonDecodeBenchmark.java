@@ -0,0 +1,57 @@
+package com.codingwithmitch.foodrecipes.benchmarks;
+
+import com.codingwithmitch.foodrecipes.requests.json.RecipeTypeAdapterFactory;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeResponse;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady state decoding of the API responses, with Gson's reflective adapters ("reflective", what
+ * GsonConverterFactory.create() did before) and with RecipeTypeAdapterFactory ("adapters").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonDecodeBenchmark {
+
+    @Param({"reflective", "adapters"})
+    public String gson;
+
+    private Gson mGson;
+    private String mSearchJson;
+    private String mRecipeJson;
+
+    @Setup
+    public void setup() {
+        mGson = "adapters".equals(gson) ? RecipeTypeAdapterFactory.create() : new Gson();
+        mSearchJson = Payloads.read(Payloads.SEARCH_CHICKEN);
+        mRecipeJson = Payloads.read(Payloads.GET_RECIPE);
+    }
+
+    @Benchmark
+    public RecipeSearchResponse decodeSearchResponse() {
+        return mGson.fromJson(mSearchJson, RecipeSearchResponse.class);
+    }
+
+    @Benchmark
+    public RecipeResponse decodeRecipeResponse() {
+        return mGson.fromJson(mRecipeJson, RecipeResponse.class);
+    }
+}
@@ -0,0 +1,49 @@
+package com.codingwithmitch.foodrecipes.benchmarks;
+
+import com.codingwithmitch.foodrecipes.requests.json.RecipeTypeAdapterFactory;
+import com.codingwithmitch.foodrecipes.requests.responses.RecipeSearchResponse;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first search response decoded by a new JVM: creating the Gson and its adapters plus one
+ * parse, with nothing warmed up. This is the latency of the app's first request.
+ * Every measurement is a separate fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class GsonFirstParseBenchmark {
+
+    @Param({"reflective", "adapters"})
+    public String gson;
+
+    private String mSearchJson;
+
+    @Setup
+    public void setup() {
+        mSearchJson = Payloads.read(Payloads.SEARCH_CHICKEN);
+    }
+
+    @Benchmark
+    public RecipeSearchResponse firstParse() {
+        Gson gson = "adapters".equals(this.gson) ? RecipeTypeAdapterFactory.create() : new Gson();
+        return gson.fromJson(mSearchJson, RecipeSearchResponse.class);
+    }
+}
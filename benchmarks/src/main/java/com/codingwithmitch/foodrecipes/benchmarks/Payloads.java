@@ -0,0 +1,57 @@
+package com.codingwithmitch.foodrecipes.benchmarks;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Sample API responses (in src/main/resources) and test data.
+ */
+public class Payloads {
+
+    // GET api/search?q=chicken, one page of 30 recipes
+    public static final String SEARCH_CHICKEN = "search_chicken.json";
+
+    // GET api/get, one recipe with its ingredients
+    public static final String GET_RECIPE = "get_recipe.json";
+
+    public static String read(String name) {
+        InputStream in = Payloads.class.getClassLoader().getResourceAsStream(name);
+        if(in == null) {
+            throw new IllegalArgumentException("No such payload: " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return new String(out.toByteArray(), Charset.forName("UTF-8"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public static String[] ingredients(int count) {
+        String[] ingredients = new String[count];
+        for(int i = 0; i < count; i++) {
+            ingredients[i] = (i + 1) + " cups of ingredient number " + i + ", chopped";
+        }
+        return ingredients;
+    }
+
+    public static Recipe recipe(int i, int ingredientCount) {
+        return new Recipe(String.valueOf(35000 + i), "Chicken recipe " + i, "The Pioneer Woman",
+                ingredients(ingredientCount), "http://static.food2fork.com/recipe" + i + ".jpg",
+                99.5f - i * 0.01f, 1546300800);
+    }
+}
@@ -0,0 +1,70 @@
+package com.codingwithmitch.foodrecipes.benchmarks;
+
+import com.codingwithmitch.foodrecipes.models.Recipe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recipe copy constructor, equals() and hashCode(). NetworkBoundResource and the ViewModels
+ * compare recipes to decide whether anything changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeBenchmark {
+
+    @Param({"0", "10", "50"})
+    public int ingredientCount;
+
+    private Recipe mRecipe;
+    private Recipe mEqual;
+    private Recipe mDifferent;
+
+    @Setup
+    public void setup() {
+        mRecipe = Payloads.recipe(1, ingredientCount);
+        mEqual = Payloads.recipe(1, ingredientCount);
+        // differs in the last field equals() looks at, so everything is compared
+        mDifferent = Payloads.recipe(1, ingredientCount);
+        if(ingredientCount > 0) {
+            mDifferent.getIngredients()[ingredientCount - 1] = "something else";
+        } else {
+            mDifferent.setIngredients(new String[]{"something else"});
+        }
+    }
+
+    @Benchmark
+    public Recipe copy() {
+        return new Recipe(mRecipe);
+    }
+
+    @Benchmark
+    public boolean equalsEqual() {
+        return mRecipe.equals(mEqual);
+    }
+
+    @Benchmark
+    public boolean equalsDifferent() {
+        return mRecipe.equals(mDifferent);
+    }
+
+    @Benchmark
+    public int hash() {
+        return mRecipe.hashCode();
+    }
+}
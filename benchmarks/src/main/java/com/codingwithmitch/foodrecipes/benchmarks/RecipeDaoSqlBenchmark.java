@@ -0,0 +1,201 @@
+package com.codingwithmitch.foodrecipes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The read queries of RecipeDao against an on-disk db of recipeCount recipes.
+ *
+ * searchLike is the LIKE '%query%' search the FTS index replaced, for comparison.
+ * The SQL is copied from RecipeDao and RecipeFts, keep it in sync. The searches are for one word, so
+ * MATCH_CLAUSE is RecipeFts' clause of a single term.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeDaoSqlBenchmark {
+
+    private static final String SUMMARY_SELECT =
+            "SELECT recipe_id, title, publisher, image_url, social_rank FROM recipes";
+
+    private static final String MATCH_CLAUSE =
+            "(rowid IN (SELECT docid FROM recipes_fts WHERE recipes_fts MATCH ?) "
+                    + "OR recipe_id IN (SELECT recipe_id FROM recipe_ingredients "
+                    + "WHERE ingredient_id IN "
+                    + "(SELECT docid FROM ingredients_fts WHERE ingredients_fts MATCH ?)))";
+
+    private static final String LIKE_CLAUSE =
+            "(title LIKE ? OR recipe_id IN (SELECT recipe_id FROM recipe_ingredients "
+                    + "WHERE ingredient_id IN (SELECT id FROM ingredients WHERE name LIKE ?)))";
+
+    private static final String AFTER_CLAUSE =
+            "(social_rank < ? OR (social_rank = ? AND recipe_id < ?))";
+
+    private static final String ORDER_AND_LIMIT =
+            " ORDER BY social_rank DESC, recipe_id DESC LIMIT ?";
+
+    private static final String SEARCH_RESULTS =
+            "SELECT recipes.recipe_id, recipes.title, recipes.publisher, recipes.image_url, "
+                    + "recipes.social_rank FROM search_results "
+                    + "INNER JOIN recipes ON recipes.recipe_id = search_results.recipe_id "
+                    + "WHERE search_results.search_query = ? AND search_results.page = ? "
+                    + "ORDER BY search_results.position";
+
+    private static final String RECIPE_ROWS =
+            "SELECT recipes.*, ingredients.name AS ingredient FROM recipes "
+                    + "LEFT JOIN recipe_ingredients ON recipe_ingredients.recipe_id = recipes.recipe_id "
+                    + "LEFT JOIN ingredients ON ingredients.id = recipe_ingredients.ingredient_id "
+                    + "WHERE recipes.recipe_id = ? ORDER BY recipe_ingredients.position";
+
+    private static final String LEAST_RECENTLY_USED =
+            "SELECT recipe_id FROM recipe_access WHERE last_accessed < ? "
+                    + "ORDER BY last_accessed ASC LIMIT ?";
+
+    private static final int PAGE_SIZE = 30;
+
+    @Param({"1000", "10000", "50000"})
+    public int recipeCount;
+
+    private File mFile;
+    private Connection mConnection;
+
+    private PreparedStatement mSearchFts;
+    private PreparedStatement mSearchFtsAfter;
+    private PreparedStatement mSearchLike;
+    private PreparedStatement mSearchResults;
+    private PreparedStatement mRecipeRows;
+    private PreparedStatement mLeastRecentlyUsed;
+
+    // last row of the first page of "chick*"
+    private float mCursorSocialRank;
+    private String mCursorRecipeId;
+
+    @Setup
+    public void setup() throws Exception {
+        mFile = BenchmarkDatabase.createTempFile();
+        mConnection = BenchmarkDatabase.open(mFile);
+        BenchmarkDatabase.create(mConnection);
+        BenchmarkDatabase.populate(mConnection, recipeCount, 42);
+        saveSearchPage("chicken", 1);
+
+        mSearchFts = mConnection.prepareStatement(
+                SUMMARY_SELECT + " WHERE " + MATCH_CLAUSE + ORDER_AND_LIMIT);
+        mSearchFtsAfter = mConnection.prepareStatement(
+                SUMMARY_SELECT + " WHERE " + MATCH_CLAUSE + " AND " + AFTER_CLAUSE + ORDER_AND_LIMIT);
+        mSearchLike = mConnection.prepareStatement(
+                SUMMARY_SELECT + " WHERE " + LIKE_CLAUSE + ORDER_AND_LIMIT);
+        mSearchResults = mConnection.prepareStatement(SEARCH_RESULTS);
+        mRecipeRows = mConnection.prepareStatement(RECIPE_ROWS);
+        mLeastRecentlyUsed = mConnection.prepareStatement(LEAST_RECENTLY_USED);
+
+        mSearchFts.setString(1, "chick*");
+        mSearchFts.setString(2, "chick*");
+        mSearchFts.setInt(3, PAGE_SIZE);
+        ResultSet page = mSearchFts.executeQuery();
+        while(page.next()) {
+            mCursorRecipeId = page.getString(1);
+            mCursorSocialRank = page.getFloat(5);
+        }
+        page.close();
+    }
+
+    private void saveSearchPage(String query, int page) throws SQLException {
+        PreparedStatement insert = mConnection.prepareStatement("INSERT INTO search_results "
+                + "(search_query, page, position, recipe_id, fetched_at) VALUES (?, ?, ?, ?, 0)");
+        for(int position = 0; position < PAGE_SIZE; position++) {
+            insert.setString(1, query);
+            insert.setInt(2, page);
+            insert.setInt(3, position);
+            insert.setString(4, "r" + (position * (recipeCount / PAGE_SIZE)));
+            insert.executeUpdate();
+        }
+        insert.close();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        mConnection.close();
+        mFile.delete();
+    }
+
+    @Benchmark
+    public void searchFts(Blackhole blackhole) throws SQLException {
+        mSearchFts.setString(1, "chick*");
+        mSearchFts.setString(2, "chick*");
+        mSearchFts.setInt(3, PAGE_SIZE);
+        consume(mSearchFts.executeQuery(), blackhole);
+    }
+
+    @Benchmark
+    public void searchFtsNextPage(Blackhole blackhole) throws SQLException {
+        mSearchFtsAfter.setString(1, "chick*");
+        mSearchFtsAfter.setString(2, "chick*");
+        mSearchFtsAfter.setFloat(3, mCursorSocialRank);
+        mSearchFtsAfter.setFloat(4, mCursorSocialRank);
+        mSearchFtsAfter.setString(5, mCursorRecipeId);
+        mSearchFtsAfter.setInt(6, PAGE_SIZE);
+        consume(mSearchFtsAfter.executeQuery(), blackhole);
+    }
+
+    @Benchmark
+    public void searchLike(Blackhole blackhole) throws SQLException {
+        mSearchLike.setString(1, "%chick%");
+        mSearchLike.setString(2, "%chick%");
+        mSearchLike.setInt(3, PAGE_SIZE);
+        consume(mSearchLike.executeQuery(), blackhole);
+    }
+
+    @Benchmark
+    public void getSearchResults(Blackhole blackhole) throws SQLException {
+        mSearchResults.setString(1, "chicken");
+        mSearchResults.setInt(2, 1);
+        consume(mSearchResults.executeQuery(), blackhole);
+    }
+
+    @Benchmark
+    public void getRecipe(Blackhole blackhole) throws SQLException {
+        mRecipeRows.setString(1, "r" + (recipeCount / 2));
+        consume(mRecipeRows.executeQuery(), blackhole);
+    }
+
+    @Benchmark
+    public void getLeastRecentlyUsed(Blackhole blackhole) throws SQLException {
+        mLeastRecentlyUsed.setInt(1, Integer.MAX_VALUE);
+        mLeastRecentlyUsed.setInt(2, 100);
+        consume(mLeastRecentlyUsed.executeQuery(), blackhole);
+    }
+
+    private static void consume(ResultSet rows, Blackhole blackhole) throws SQLException {
+        try {
+            int columns = rows.getMetaData().getColumnCount();
+            while(rows.next()) {
+                for(int column = 1; column <= columns; column++) {
+                    blackhole.consume(rows.getObject(column));
+                }
+            }
+        } finally {
+            rows.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.codingwithmitch.foodrecipes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a page of 30 search results the way RecipeDao.saveSearchResults() does (upsert the
+ * recipes, touch recipe_access, replace the page in search_results/search_pages), in one
+ * transaction vs one commit per statement like before.
+ *
+ * The recipes are already in the db (a refresh), so every upsert takes the UPDATE path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveSearchPageBenchmark {
+
+    private static final int PAGE_SIZE = 30;
+
+    @Param({"1000", "10000"})
+    public int recipeCount;
+
+    private File mFile;
+    private Connection mConnection;
+
+    private PreparedStatement mInsertRecipe;
+    private PreparedStatement mUpdateRecipe;
+    private PreparedStatement mTouchRecipe;
+    private PreparedStatement mDeleteResults;
+    private PreparedStatement mInsertResult;
+    private PreparedStatement mInsertPage;
+
+    private int mPage;
+
+    @Setup
+    public void setup() throws Exception {
+        mFile = BenchmarkDatabase.createTempFile();
+        mConnection = BenchmarkDatabase.open(mFile);
+        BenchmarkDatabase.create(mConnection);
+        BenchmarkDatabase.populate(mConnection, recipeCount, 42);
+
+        mInsertRecipe = mConnection.prepareStatement("INSERT OR IGNORE INTO recipes "
+                + "(recipe_id, title, publisher, image_url, social_rank, timestamp) VALUES (?, ?, ?, ?, ?, 0)");
+        mUpdateRecipe = mConnection.prepareStatement("UPDATE recipes SET title = ?, publisher = ?, "
+                + "image_url = ?, social_rank = ? WHERE recipe_id = ?");
+        mTouchRecipe = mConnection.prepareStatement("INSERT OR REPLACE INTO recipe_access "
+                + "(recipe_id, last_accessed) VALUES (?, ?)");
+        mDeleteResults = mConnection.prepareStatement(
+                "DELETE FROM search_results WHERE search_query = ? AND page = ?");
+        mInsertResult = mConnection.prepareStatement("INSERT OR REPLACE INTO search_results "
+                + "(search_query, page, position, recipe_id, fetched_at) VALUES (?, ?, ?, ?, ?)");
+        mInsertPage = mConnection.prepareStatement("INSERT OR REPLACE INTO search_pages "
+                + "(search_query, page, fetched_at, result_count) VALUES (?, ?, ?, ?)");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        mConnection.close();
+        mFile.delete();
+    }
+
+    @Benchmark
+    public void savePageInOneTransaction() throws SQLException {
+        mConnection.setAutoCommit(false);
+        try {
+            savePage();
+            mConnection.commit();
+        } finally {
+            mConnection.setAutoCommit(true);
+        }
+    }
+
+    @Benchmark
+    public void savePagePerStatement() throws SQLException {
+        savePage();
+    }
+
+    private void savePage() throws SQLException {
+        int page = mPage++ % (recipeCount / PAGE_SIZE);
+        int now = (int) (System.currentTimeMillis() / 1000);
+        for(int position = 0; position < PAGE_SIZE; position++) {
+            String recipeId = "r" + (page * PAGE_SIZE + position);
+            String title = "Chicken recipe " + position;
+            mInsertRecipe.setString(1, recipeId);
+            mInsertRecipe.setString(2, title);
+            mInsertRecipe.setString(3, "The Pioneer Woman");
+            mInsertRecipe.setString(4, "http://static.food2fork.com/" + recipeId + ".jpg");
+            mInsertRecipe.setFloat(5, 99.5f - position);
+            if(mInsertRecipe.executeUpdate() == 0) {
+                mUpdateRecipe.setString(1, title);
+                mUpdateRecipe.setString(2, "The Pioneer Woman");
+                mUpdateRecipe.setString(3, "http://static.food2fork.com/" + recipeId + ".jpg");
+                mUpdateRecipe.setFloat(4, 99.5f - position);
+                mUpdateRecipe.setString(5, recipeId);
+                mUpdateRecipe.executeUpdate();
+            }
+            mTouchRecipe.setString(1, recipeId);
+            mTouchRecipe.setInt(2, now);
+            mTouchRecipe.executeUpdate();
+        }
+        mDeleteResults.setString(1, "chicken");
+        mDeleteResults.setInt(2, page);
+        mDeleteResults.executeUpdate();
+        for(int position = 0; position < PAGE_SIZE; position++) {
+            mInsertResult.setString(1, "chicken");
+            mInsertResult.setInt(2, page);
+            mInsertResult.setInt(3, position);
+            mInsertResult.setString(4, "r" + (page * PAGE_SIZE + position));
+            mInsertResult.setInt(5, now);
+            mInsertResult.executeUpdate();
+        }
+        mInsertPage.setString(1, "chicken");
+        mInsertPage.setInt(2, page);
+        mInsertPage.setInt(3, now);
+        mInsertPage.setInt(4, PAGE_SIZE);
+        mInsertPage.executeUpdate();
+    }
+}